@@ -0,0 +1,63 @@
+package org.pac4j.demo.undertow.benchmark;
+
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.demo.undertow.AuthorizationCache;
+import org.pac4j.demo.undertow.CachingAuthorizer;
+import org.pac4j.demo.undertow.CustomAuthorizer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link CustomAuthorizer}, directly and behind a {@link CachingAuthorizer}.
+ *
+ * @since 6.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizerBenchmark {
+
+    private CustomAuthorizer customAuthorizer;
+
+    private CachingAuthorizer cachingAuthorizer;
+
+    private List<UserProfile> profiles;
+
+    @Setup
+    public void setup() {
+        customAuthorizer = new CustomAuthorizer();
+        cachingAuthorizer = new CachingAuthorizer("custom", customAuthorizer, new AuthorizationCache(10_000, 300_000));
+
+        val profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("username", "jleleu");
+        profile.addRole("ROLE_ADMIN");
+        profiles = List.of(profile);
+    }
+
+    @Benchmark
+    public boolean customAuthorizer() {
+        return customAuthorizer.isAuthorized(null, null, profiles);
+    }
+
+    @Benchmark
+    public boolean cachingAuthorizer() {
+        return cachingAuthorizer.isAuthorized(null, null, profiles);
+    }
+}
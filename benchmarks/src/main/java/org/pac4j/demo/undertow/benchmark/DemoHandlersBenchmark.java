@@ -0,0 +1,77 @@
+package org.pac4j.demo.undertow.benchmark;
+
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.demo.undertow.DemoHandlers;
+import org.pac4j.demo.undertow.HtmlTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the rendering of a page with the pre-encoded {@link HtmlTemplate} and with a per-request string builder.
+ *
+ * @since 6.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DemoHandlersBenchmark {
+
+    private HtmlTemplate index;
+
+    private String indexPrefix;
+
+    private String indexSuffix;
+
+    private List<UserProfile> profiles;
+
+    @Setup
+    public void setup() {
+        index = DemoHandlers.getIndexTemplate();
+        indexPrefix = new String(bytes(index.render("")[0]), StandardCharsets.UTF_8);
+        indexSuffix = new String(bytes(index.render("")[2]), StandardCharsets.UTF_8);
+
+        val profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.setClientName("FormClient");
+        profile.addAttribute("username", "jleleu");
+        profiles = List.of(profile);
+    }
+
+    private static byte[] bytes(final ByteBuffer buffer) {
+        val bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public ByteBuffer[] template() {
+        return index.render(profiles);
+    }
+
+    @Benchmark
+    public ByteBuffer stringBuilder() {
+        val sb = new StringBuilder();
+        sb.append(indexPrefix);
+        sb.append(profiles);
+        sb.append(indexSuffix);
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package org.pac4j.demo.undertow.benchmark;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.demo.undertow.ErrorHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the round trip of a 403 response rendered by the default response listener of the {@link ErrorHandler},
+ * compared to an empty 403 response, on an embedded Undertow server.
+ *
+ * @since 6.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorHandlerBenchmark {
+
+    private Undertow server;
+
+    private HttpClient client;
+
+    private HttpRequest errorPage;
+
+    private HttpRequest emptyPage;
+
+    @Setup
+    public void setup() {
+        final HttpHandler forbidden = exchange -> {
+            exchange.setStatusCode(403);
+            exchange.endExchange();
+        };
+        val errorHandler = new ErrorHandler(forbidden);
+        server = Undertow.builder().addHttpListener(0, "localhost")
+                .setHandler(exchange -> {
+                    if (exchange.getRelativePath().startsWith("/error")) {
+                        errorHandler.handleRequest(exchange);
+                    } else {
+                        forbidden.handleRequest(exchange);
+                    }
+                }).build();
+        server.start();
+        val port = ((InetSocketAddress) server.getListenerInfo().get(0).getAddress()).getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        errorPage = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/error")).build();
+        emptyPage = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/empty")).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public String errorHandler() throws IOException, InterruptedException {
+        return client.send(errorPage, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Benchmark
+    public String noErrorHandler() throws IOException, InterruptedException {
+        return client.send(emptyPage, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
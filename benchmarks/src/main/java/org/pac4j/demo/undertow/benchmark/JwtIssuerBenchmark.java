@@ -0,0 +1,66 @@
+package org.pac4j.demo.undertow.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.demo.undertow.DemoServer;
+import org.pac4j.demo.undertow.JwtIssuer;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.profile.JwtGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-request JWT generation of the original jwt.html handler with the shared {@link JwtIssuer}.
+ *
+ * @since 6.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtIssuerBenchmark {
+
+    private CommonProfile profile;
+
+    private JwtIssuer sharedSigner;
+
+    private JwtIssuer cachingIssuer;
+
+    @Setup
+    public void setup() {
+        profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("email", "jleleu@example.org");
+        profile.addRole("ROLE_ADMIN");
+
+        // no token reuse: only the signer initialization is saved
+        sharedSigner = new JwtIssuer(DemoServer.JWT_SALT, 1, 0);
+        cachingIssuer = new JwtIssuer(DemoServer.JWT_SALT);
+    }
+
+    @Benchmark
+    public String perRequestGenerator() {
+        return new JwtGenerator(new SecretSignatureConfiguration(DemoServer.JWT_SALT)).generate(profile);
+    }
+
+    @Benchmark
+    public String sharedSigner() {
+        return sharedSigner.generate(profile);
+    }
+
+    @Benchmark
+    public String cachingIssuer() {
+        return cachingIssuer.generate(profile);
+    }
+}
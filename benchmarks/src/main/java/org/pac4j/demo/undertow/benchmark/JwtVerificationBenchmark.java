@@ -0,0 +1,70 @@
+package org.pac4j.demo.undertow.benchmark;
+
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.TokenCredentials;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.demo.undertow.CachingTokenAuthenticator;
+import org.pac4j.demo.undertow.DemoServer;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.credentials.authenticator.JwtAuthenticator;
+import org.pac4j.jwt.profile.JwtGenerator;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the verification of a JWT signed with {@link DemoServer#JWT_SALT}, directly and behind the
+ * {@link CachingTokenAuthenticator}.
+ *
+ * @since 6.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private final CallContext ctx = new CallContext(null, null);
+
+    private String token;
+
+    private JwtAuthenticator jwtAuthenticator;
+
+    private CachingTokenAuthenticator cachingAuthenticator;
+
+    @Setup
+    public void setup() {
+        val profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("username", "jleleu");
+        token = new JwtGenerator(new SecretSignatureConfiguration(DemoServer.JWT_SALT)).generate(profile);
+
+        jwtAuthenticator = new JwtAuthenticator(new SecretSignatureConfiguration(DemoServer.JWT_SALT));
+        cachingAuthenticator = new CachingTokenAuthenticator(
+                new JwtAuthenticator(new SecretSignatureConfiguration(DemoServer.JWT_SALT)));
+    }
+
+    @Benchmark
+    public Optional<Credentials> jwtAuthenticator() {
+        return jwtAuthenticator.validate(ctx, new TokenCredentials(token));
+    }
+
+    @Benchmark
+    public Optional<Credentials> cachingAuthenticator() {
+        return cachingAuthenticator.validate(ctx, new TokenCredentials(token));
+    }
+}
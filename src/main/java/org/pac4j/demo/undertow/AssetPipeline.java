@@ -0,0 +1,187 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.QValueParser;
+import lombok.val;
+import org.pac4j.core.exception.TechnicalException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves static assets loaded from the classpath once at startup: each asset is kept in memory as is and gzipped,
+ * and is available under its name (revalidated with its ETag) and under a content-hashed name (cached forever).
+ *
+ * @since 6.0.0
+ */
+public class AssetPipeline implements HttpHandler {
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final String REVALIDATE = "no-cache";
+
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    private final Map<String, String> urls = new HashMap<>();
+
+    /**
+     * Load the assets named <code>names</code> from the <code>classpathDirectory</code>, to be served under
+     * the <code>urlPrefix</code>.
+     */
+    public AssetPipeline(final String urlPrefix, final String classpathDirectory, final String... names) {
+        for (val name : names) {
+            val content = read(classpathDirectory + name);
+            val hash = HexFormat.of().formatHex(sha256(content), 0, 8);
+            val extension = name.lastIndexOf('.');
+            val hashedName = extension < 0 ? name + "." + hash
+                    : name.substring(0, extension) + "." + hash + name.substring(extension);
+            val etag = new ETag(false, hash);
+            val contentType = contentType(name);
+            val buffer = direct(content);
+            val gzipped = direct(gzip(content));
+            assets.put("/" + name, new Asset(buffer, gzipped, contentType, etag, REVALIDATE));
+            assets.put("/" + hashedName, new Asset(buffer, gzipped, contentType, etag, IMMUTABLE));
+            urls.put(name, urlPrefix + hashedName);
+        }
+    }
+
+    /**
+     * The content-hashed url of the asset.
+     */
+    public String url(final String name) {
+        val url = urls.get(name);
+        if (url == null) {
+            throw new TechnicalException("Unknown asset: " + name);
+        }
+        return url;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) {
+        val asset = assets.get(exchange.getRelativePath());
+        if (asset == null) {
+            exchange.setStatusCode(404);
+            exchange.endExchange();
+            return;
+        }
+        val headers = exchange.getResponseHeaders();
+        headers.put(Headers.ETAG, asset.etag.toString());
+        headers.put(Headers.CACHE_CONTROL, asset.cacheControl);
+        headers.put(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        if (!ETagUtils.handleIfNoneMatch(exchange, asset.etag, false)) {
+            exchange.setStatusCode(304);
+            exchange.endExchange();
+            return;
+        }
+        headers.put(Headers.CONTENT_TYPE, asset.contentType);
+        if (asset.gzipped != null && acceptsGzip(exchange)) {
+            headers.put(Headers.CONTENT_ENCODING, "gzip");
+            exchange.getResponseSender().send(asset.gzipped.duplicate());
+        } else {
+            exchange.getResponseSender().send(asset.content.duplicate());
+        }
+    }
+
+    /**
+     * Tell whether the <code>Accept-Encoding</code> header accepts gzip: the <code>gzip</code> (or legacy
+     * <code>x-gzip</code>) coding, or else the <code>*</code> wildcard, with a non-zero quality.
+     */
+    static boolean acceptsGzip(final HttpServerExchange exchange) {
+        val values = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+        if (values == null) {
+            return false;
+        }
+        QValueParser.QValueResult wildcard = null;
+        for (val group : QValueParser.parse(values)) {
+            for (val coding : group) {
+                if ("gzip".equalsIgnoreCase(coding.getValue()) || "x-gzip".equalsIgnoreCase(coding.getValue())) {
+                    return !coding.isQValueZero();
+                } else if ("*".equals(coding.getValue()) && wildcard == null) {
+                    wildcard = coding;
+                }
+            }
+        }
+        return wildcard != null && !wildcard.isQValueZero();
+    }
+
+    private static byte[] read(final String location) {
+        try (val in = AssetPipeline.class.getClassLoader().getResourceAsStream(location)) {
+            if (in == null) {
+                throw new TechnicalException("Cannot find asset: " + location);
+            }
+            return in.readAllBytes();
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static byte[] gzip(final byte[] content) {
+        val out = new ByteArrayOutputStream(content.length);
+        try (val gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+        // not worth it for the tiny assets
+        return out.size() < content.length ? out.toByteArray() : null;
+    }
+
+    private static byte[] sha256(final byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (final GeneralSecurityException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static String contentType(final String name) {
+        if (name.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        } else if (name.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        }
+        return "application/octet-stream";
+    }
+
+    private static ByteBuffer direct(final byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        val buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private static final class Asset {
+
+        private final ByteBuffer content;
+
+        private final ByteBuffer gzipped;
+
+        private final String contentType;
+
+        private final ETag etag;
+
+        private final String cacheControl;
+
+        private Asset(final ByteBuffer content, final ByteBuffer gzipped, final String contentType, final ETag etag,
+                      final String cacheControl) {
+            this.content = content;
+            this.gzipped = gzipped;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.cacheControl = cacheControl;
+        }
+    }
+}
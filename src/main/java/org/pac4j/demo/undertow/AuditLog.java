@@ -0,0 +1,331 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import lombok.val;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.ProfileManager;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.Pac4jConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The security trail of the demo: logins, logouts, denied accesses and issued tokens, written as JSON lines.
+ * The request threads only publish the events into a {@link MpscRingBuffer} (the events are dropped and counted
+ * when it is full); a background thread, parked while there is nothing to write and woken up by the next event,
+ * writes them to disk by batches and rotates the file once it reaches its maximum size.
+ *
+ * @since 6.0.0
+ */
+public class AuditLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLog.class);
+
+    public static final String LOGIN_SUCCESS = "login_success";
+
+    public static final String LOGIN_FAILURE = "login_failure";
+
+    public static final String LOGOUT = "logout";
+
+    public static final String UNAUTHORIZED = "unauthorized";
+
+    public static final String FORBIDDEN = "forbidden";
+
+    public static final String JWT_ISSUED = "jwt_issued";
+
+    private static final int BATCH_SIZE = 1024;
+
+    private static final AttachmentKey<Boolean> LOGGED_IN = AttachmentKey.create(Boolean.class);
+
+    private final MpscRingBuffer<Event> events;
+
+    private final Path file;
+
+    private final long maxFileBytes;
+
+    private final int maxFiles;
+
+    private final LongAdder written = new LongAdder();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    // the writer is parked, waiting for an event
+    private volatile boolean idle;
+
+    private OutputStream out;
+
+    private long fileBytes;
+
+    public AuditLog(final Path file, final int capacity, final long maxFileBytes, final int maxFiles) {
+        this.events = new MpscRingBuffer<>(capacity);
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            open();
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+        this.writer = new Thread(this::write, "audit-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Record an event of the exchange, without blocking.
+     */
+    public void record(final String type, final HttpServerExchange exchange, final String client, final String user) {
+        val published = events.offer(new Event(System.currentTimeMillis(), type, client, user,
+                exchange.getSourceAddress().getAddress().getHostAddress(), exchange.getRequestPath(),
+                exchange.getStatusCode()));
+        if (published && idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Wrap the callback handler to record the login of the client, successful if the callback saved a new profile
+     * of the client (a profile left by a previous login does not count).
+     */
+    public HttpHandler loginOnCallback(final HttpHandler callbackHandler, final Config config) {
+        return exchange -> {
+            val before = profiles(exchange, config);
+            exchange.addExchangeCompleteListener((ex, nextListener) -> {
+                try {
+                    val client = ex.getQueryParameters().containsKey(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER)
+                            ? ex.getQueryParameters().get(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER).getFirst() : null;
+                    val profile = findNewProfile(before, profiles(ex, config), client);
+                    ex.putAttachment(LOGGED_IN, profile != null);
+                    if (profile != null) {
+                        record(LOGIN_SUCCESS, ex, client, profile.getId());
+                    } else {
+                        record(LOGIN_FAILURE, ex, client, null);
+                    }
+                } finally {
+                    nextListener.proceed();
+                }
+            });
+            callbackHandler.handleRequest(exchange);
+        };
+    }
+
+    /**
+     * Tell whether the callback of the completed exchange saved no profile. The outcome is known to the completion
+     * listeners registered before {@link #loginOnCallback(HttpHandler, Config)} was called (they run after it).
+     * A callback may save no profile without any credentials being rejected (an authentication challenge, a step of
+     * a multi-step protocol): it is only a failed attempt if the request presented credentials.
+     */
+    public static boolean isLoginFailure(final HttpServerExchange exchange) {
+        return !Boolean.TRUE.equals(exchange.getAttachment(LOGGED_IN));
+    }
+
+    /**
+     * Wrap the logout handler to record the logout of the profiles.
+     */
+    public HttpHandler logout(final HttpHandler logoutHandler, final Config config) {
+        return exchange -> {
+            for (val profile : profiles(exchange, config)) {
+                record(LOGOUT, exchange, profile.getClientName(), profile.getId());
+            }
+            logoutHandler.handleRequest(exchange);
+        };
+    }
+
+    private static List<UserProfile> profiles(final HttpServerExchange exchange, final Config config) {
+        val context = SecurityContextCache.resolve(config, exchange);
+        return new ProfileManager(context.getWebContext(), context.getSessionStore()).getProfiles();
+    }
+
+    private static UserProfile findNewProfile(final List<UserProfile> before, final List<UserProfile> after,
+                                              final String client) {
+        for (val profile : after) {
+            // the saved profiles are new instances, even for the same user
+            if (client != null && client.equals(profile.getClientName()) && !containsInstance(before, profile)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsInstance(final List<UserProfile> profiles, final UserProfile profile) {
+        for (val candidate : profiles) {
+            if (candidate == profile) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write() {
+        val sb = new StringBuilder();
+        while (running) {
+            var count = 0;
+            Event event;
+            while (count < BATCH_SIZE && (event = events.poll()) != null) {
+                event.appendJson(sb);
+                count++;
+            }
+            if (count > 0) {
+                flush(sb, count);
+            } else {
+                idle = true;
+                // re-checked once idle is visible, so that an event published meanwhile is not missed
+                if (running && events.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+            }
+        }
+        // drain the events published before the shutdown
+        Event event;
+        var count = 0;
+        while ((event = events.poll()) != null) {
+            event.appendJson(sb);
+            count++;
+        }
+        flush(sb, count);
+        close();
+    }
+
+    private void flush(final StringBuilder sb, final int count) {
+        if (sb.length() == 0) {
+            return;
+        }
+        val bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        sb.setLength(0);
+        try {
+            if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                rotate();
+            }
+            out.write(bytes);
+            out.flush();
+            fileBytes += bytes.length;
+            written.add(count);
+        } catch (final IOException e) {
+            LOGGER.error("Cannot write {} audit events to {}", count, file, e);
+        }
+    }
+
+    private void open() throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        for (var i = maxFiles - 1; i >= 1; i--) {
+            val source = i == 1 ? file : rotated(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        // no rotated file is kept with a single file
+        Files.deleteIfExists(file);
+        open();
+    }
+
+    private Path rotated(final int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void close() {
+        try {
+            out.close();
+        } catch (final IOException e) {
+            LOGGER.warn("Cannot close {}", file, e);
+        }
+    }
+
+    /**
+     * Stop the writer once the published events are written.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5_000);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void writeMetrics(final StringBuilder sb) {
+        sb.append("pac4j_demo_audit_events_written_total ").append(written.sum()).append('\n');
+        sb.append("pac4j_demo_audit_events_dropped_total ").append(events.getDropped()).append('\n');
+    }
+
+    private static final class Event {
+
+        private final long timestamp;
+
+        private final String type;
+
+        private final String client;
+
+        private final String user;
+
+        private final String address;
+
+        private final String path;
+
+        private final int status;
+
+        private Event(final long timestamp, final String type, final String client, final String user,
+                      final String address, final String path, final int status) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.client = client;
+            this.user = user;
+            this.address = address;
+            this.path = path;
+            this.status = status;
+        }
+
+        private void appendJson(final StringBuilder sb) {
+            sb.append("{\"time\":\"").append(Instant.ofEpochMilli(timestamp)).append("\",\"event\":\"").append(type).append('"');
+            appendField(sb, "client", client);
+            appendField(sb, "user", user);
+            appendField(sb, "ip", address);
+            appendField(sb, "path", path);
+            sb.append(",\"status\":").append(status).append("}\n");
+        }
+
+        private static void appendField(final StringBuilder sb, final String name, final String value) {
+            if (value == null) {
+                return;
+            }
+            sb.append(",\"").append(name).append("\":\"");
+            for (var i = 0; i < value.length(); i++) {
+                val c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+    }
+}
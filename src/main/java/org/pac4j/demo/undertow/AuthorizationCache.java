@@ -0,0 +1,135 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import lombok.val;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.profile.ProfileManager;
+import org.pac4j.core.profile.UserProfile;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the authorization decisions of the {@link CachingAuthorizer}s, keyed by authorizer name, profile id and
+ * role names, for a time to live or until the user logs out.
+ * The keys of the decisions are indexed by the typed ids of their profiles, so that a logout only removes the
+ * decisions of its own profiles, without scanning the cache.
+ *
+ * @since 6.0.0
+ */
+public class AuthorizationCache {
+
+    private static final char PROFILE_SEPARATOR = '|';
+
+    private final ExpiringLruCache<String, Decision> decisions;
+
+    // the keys of the cached decisions per typed profile id
+    private final Map<String, Set<String>> keysByProfile = new ConcurrentHashMap<>();
+
+    private final long timeToLiveMillis;
+
+    public AuthorizationCache(final int maxSize, final long timeToLiveMillis) {
+        this.decisions = new ExpiringLruCache<>(maxSize, this::unindex);
+        this.timeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * The key of the decision: the authorizer name, then the typed id and the sorted role names of each profile, the
+     * ids and roles being prefixed by their length so that no two different profile lists share a key.
+     */
+    static String key(final String authorizerName, final List<UserProfile> profiles) {
+        val sb = new StringBuilder(authorizerName);
+        for (val profile : profiles) {
+            sb.append(PROFILE_SEPARATOR);
+            append(sb, profile.getTypedId());
+            for (val role : new TreeSet<>(profile.getRoles())) {
+                append(sb, role);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void append(final StringBuilder sb, final String value) {
+        sb.append(value.length()).append(':').append(value);
+    }
+
+    Boolean get(final String key) {
+        val decision = decisions.get(key);
+        return decision != null ? decision.authorized : null;
+    }
+
+    void put(final String key, final List<UserProfile> profiles, final boolean authorized) {
+        val typedIds = new String[profiles.size()];
+        for (var i = 0; i < typedIds.length; i++) {
+            typedIds[i] = profiles.get(i).getTypedId();
+            // indexed first, so that a concurrent logout cannot miss the decision
+            keysByProfile.compute(typedIds[i], (typedId, keys) -> {
+                val result = keys != null ? keys : new HashSet<String>();
+                result.add(key);
+                return result;
+            });
+        }
+        decisions.put(key, new Decision(authorized, typedIds), System.currentTimeMillis() + timeToLiveMillis);
+    }
+
+    private void unindex(final String key, final Decision decision) {
+        for (val typedId : decision.typedIds) {
+            keysByProfile.computeIfPresent(typedId, (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    public void invalidate(final UserProfile profile) {
+        val keys = keysByProfile.remove(profile.getTypedId());
+        if (keys != null) {
+            for (val key : keys) {
+                decisions.invalidate(key);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        decisions.invalidateAll();
+        keysByProfile.clear();
+    }
+
+    /**
+     * Wrap the logout handler to invalidate the decisions of the profiles logging out.
+     */
+    public HttpHandler invalidateOnLogout(final HttpHandler logoutHandler, final Config config) {
+        return exchange -> {
+            val context = SecurityContextCache.resolve(config, exchange);
+            val profileManager = new ProfileManager(context.getWebContext(), context.getSessionStore());
+            for (val profile : profileManager.getProfiles()) {
+                invalidate(profile);
+            }
+            logoutHandler.handleRequest(exchange);
+        };
+    }
+
+    public long getHits() {
+        return decisions.getHits();
+    }
+
+    public long getMisses() {
+        return decisions.getMisses();
+    }
+
+    private static final class Decision {
+
+        private final boolean authorized;
+
+        private final String[] typedIds;
+
+        private Decision(final boolean authorized, final String[] typedIds) {
+            this.authorized = authorized;
+            this.typedIds = typedIds;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.pac4j.core.authorization.authorizer.Authorizer;
+import org.pac4j.core.authorization.authorizer.ProfileAuthorizer;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.UserProfile;
+
+import java.util.List;
+
+/**
+ * An authorizer memoizing the decisions of a {@link ProfileAuthorizer} in an {@link AuthorizationCache}.
+ * Only profile authorizers can opt in, as their decisions only depend on the profiles, not on the request.
+ *
+ * @since 6.0.0
+ */
+public class CachingAuthorizer implements Authorizer {
+
+    private final String name;
+
+    private final ProfileAuthorizer delegate;
+
+    private final AuthorizationCache cache;
+
+    public CachingAuthorizer(final String name, final ProfileAuthorizer delegate, final AuthorizationCache cache) {
+        this.name = name;
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean isAuthorized(final WebContext context, final SessionStore sessionStore, final List<UserProfile> profiles) {
+        val key = AuthorizationCache.key(name, profiles);
+        val cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        val authorized = delegate.isAuthorized(context, sessionStore, profiles);
+        cache.put(key, profiles, authorized);
+        return authorized;
+    }
+}
@@ -0,0 +1,75 @@
+package org.pac4j.demo.undertow;
+
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A session store remembering the attributes read and written during a request, so that the handlers of the chain
+ * read each attribute from the underlying session store at most once.
+ * An instance must only be used for a single request.
+ *
+ * @since 6.0.0
+ */
+public class CachingSessionStore implements SessionStore {
+
+    private final SessionStore delegate;
+
+    private final LongAdder avoidedReads;
+
+    private final Map<String, Optional<Object>> attributes = new HashMap<>();
+
+    public CachingSessionStore(final SessionStore delegate, final LongAdder avoidedReads) {
+        this.delegate = delegate;
+        this.avoidedReads = avoidedReads;
+    }
+
+    @Override
+    public Optional<String> getSessionId(final WebContext context, final boolean createSession) {
+        return delegate.getSessionId(context, createSession);
+    }
+
+    @Override
+    public Optional<Object> get(final WebContext context, final String key) {
+        var value = attributes.get(key);
+        if (value != null) {
+            avoidedReads.increment();
+            return value;
+        }
+        value = delegate.get(context, key);
+        attributes.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void set(final WebContext context, final String key, final Object value) {
+        delegate.set(context, key, value);
+        attributes.put(key, Optional.ofNullable(value));
+    }
+
+    @Override
+    public boolean destroySession(final WebContext context) {
+        attributes.clear();
+        return delegate.destroySession(context);
+    }
+
+    @Override
+    public Optional<Object> getTrackableSession(final WebContext context) {
+        return delegate.getTrackableSession(context);
+    }
+
+    @Override
+    public Optional<SessionStore> buildFromTrackableSession(final WebContext context, final Object trackableSession) {
+        return delegate.buildFromTrackableSession(context, trackableSession);
+    }
+
+    @Override
+    public boolean renewSession(final WebContext context) {
+        attributes.clear();
+        return delegate.renewSession(context);
+    }
+}
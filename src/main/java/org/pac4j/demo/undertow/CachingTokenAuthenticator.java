@@ -0,0 +1,116 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.TokenCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.BasicUserProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.profile.jwt.JwtClaims;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * A token authenticator remembering the profiles of already verified tokens, keyed by the SHA-256 digest of the token,
+ * until the token expires (or for a maximum time to live when the token has no expiration).
+ * As pac4j completes the profile of the credentials (client name, roles...), each request gets its own copy of the
+ * cached profile.
+ *
+ * @since 6.0.0
+ */
+public class CachingTokenAuthenticator implements Authenticator {
+
+    private final Authenticator delegate;
+
+    private final long maxTimeToLiveMillis;
+
+    private final ExpiringLruCache<ByteBuffer, BasicUserProfile> cache;
+
+    public CachingTokenAuthenticator(final Authenticator delegate) {
+        this(delegate, 10_000, 300_000);
+    }
+
+    public CachingTokenAuthenticator(final Authenticator delegate, final int maxSize, final long maxTimeToLiveMillis) {
+        this.delegate = delegate;
+        this.maxTimeToLiveMillis = maxTimeToLiveMillis;
+        this.cache = new ExpiringLruCache<>(maxSize);
+    }
+
+    @Override
+    public Optional<Credentials> validate(final CallContext ctx, final Credentials credentials) {
+        if (!(credentials instanceof TokenCredentials)) {
+            return delegate.validate(ctx, credentials);
+        }
+        val key = digest(((TokenCredentials) credentials).getToken());
+        val cachedProfile = cache.get(key);
+        if (cachedProfile != null) {
+            credentials.setUserProfile(copy(cachedProfile));
+            return Optional.of(credentials);
+        }
+
+        val validated = delegate.validate(ctx, credentials);
+        validated.map(Credentials::getUserProfile)
+                .filter(BasicUserProfile.class::isInstance)
+                .ifPresent(profile -> cache.put(key, copy((BasicUserProfile) profile), expiresAt(profile)));
+        return validated;
+    }
+
+    private static BasicUserProfile copy(final BasicUserProfile profile) {
+        try {
+            final BasicUserProfile copy = profile.getClass().getDeclaredConstructor().newInstance();
+            copy.build(profile.getId(), profile.getAttributes(), profile.getAuthenticationAttributes());
+            copy.addRoles(profile.getRoles());
+            copy.setClientName(profile.getClientName());
+            copy.setLinkedId(profile.getLinkedId());
+            copy.setRemembered(profile.isRemembered());
+            return copy;
+        } catch (final ReflectiveOperationException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private long expiresAt(final UserProfile profile) {
+        val now = System.currentTimeMillis();
+        val maxExpiresAt = now + maxTimeToLiveMillis;
+        val exp = profile.getAttribute(JwtClaims.EXPIRATION_TIME);
+        final long expiresAt;
+        if (exp instanceof Date) {
+            expiresAt = ((Date) exp).getTime();
+        } else if (exp instanceof Instant) {
+            expiresAt = ((Instant) exp).toEpochMilli();
+        } else if (exp instanceof Number) {
+            expiresAt = ((Number) exp).longValue() * 1000L;
+        } else {
+            return maxExpiresAt;
+        }
+        return Math.min(expiresAt, maxExpiresAt);
+    }
+
+    private static ByteBuffer digest(final String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
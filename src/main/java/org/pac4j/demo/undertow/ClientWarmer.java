@@ -0,0 +1,76 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.InitializableObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Initializes pac4j clients in parallel before the server starts, instead of on their first request.
+ * The startup mode is <code>lazy</code> (no warm-up: every client is initialized on first use), <code>routes</code>
+ * (only the clients of the declared routes are warmed, the other ones stay lazy) or <code>all</code>.
+ *
+ * @since 6.0.0
+ */
+public final class ClientWarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientWarmer.class);
+
+    public static final String LAZY = "lazy";
+
+    public static final String ROUTES = "routes";
+
+    public static final String ALL = "all";
+
+    private ClientWarmer() {}
+
+    public static void warm(final Config config, final String mode, final Collection<String> routeClientNames) {
+        final Collection<String> names;
+        if (ALL.equals(mode)) {
+            names = new ArrayList<>();
+            for (val client : config.getClients().findAllClients()) {
+                names.add(client.getName());
+            }
+        } else if (ROUTES.equals(mode)) {
+            names = routeClientNames;
+        } else {
+            return;
+        }
+
+        val start = System.nanoTime();
+        val pool = new ForkJoinPool(Math.max(1, Math.min(names.size(), Runtime.getRuntime().availableProcessors() * 2)));
+        try {
+            val futures = new ArrayList<CompletableFuture<Void>>();
+            for (val name : names) {
+                config.getClients().findClient(name).ifPresent(client ->
+                        futures.add(CompletableFuture.runAsync(() -> init(client), pool)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+        LOGGER.info("Warmed {} clients in {} ms", names.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void init(final Client client) {
+        if (!(client instanceof InitializableObject)) {
+            return;
+        }
+        val start = System.nanoTime();
+        try {
+            ((InitializableObject) client).init();
+            LOGGER.info("Initialized client {} in {} ms", client.getName(), (System.nanoTime() - start) / 1_000_000);
+        } catch (final RuntimeException e) {
+            // the client will try to initialize again on its first use
+            LOGGER.warn("Cannot initialize client {} in {} ms: {}", client.getName(),
+                    (System.nanoTime() - start) / 1_000_000, e.toString());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.Cookie;
+import io.undertow.server.handlers.CookieImpl;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.Sessions;
+import lombok.val;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.undertow.context.UndertowWebContext;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A stateless session store keeping the session attributes (mainly the pac4j profiles) in a cookie: they are
+ * serialized by the {@link SessionCodec}, compressed, then encrypted and authenticated with AES-GCM.
+ * The AES keys are derived from the secrets with HKDF-SHA256, so that they are not reused for anything else.
+ * The first key encrypts, all the keys decrypt, so that keys can be rotated.
+ * The issue time is encrypted with the attributes: a cookie is rejected once older than the maximum age (so a copied
+ * cookie does not outlive a logout for long) and is re-issued after half of it while the session is in use. When the cookie would exceed the size cap,
+ * the attributes fall back to the server-side session.
+ *
+ * @since 6.0.0
+ */
+public class CookieSessionStore implements SessionStore {
+
+    private static final String SESSION_ID = "pac4jCookieSessionId";
+
+    private static final int NONCE_LENGTH = 12;
+
+    private static final int TAG_LENGTH = 128;
+
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private static final int ISSUED_AT_LENGTH = 8;
+
+    // tolerated clock difference between the nodes
+    private static final long CLOCK_SKEW_MILLIS = 60_000;
+
+    private static final byte[] HKDF_SALT = "pac4j-demo-cookie-session".getBytes(StandardCharsets.UTF_8);
+
+    private static final AttachmentKey<Map<String, Object>> ATTRIBUTES = AttachmentKey.create(Map.class);
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final String cookieName;
+
+    private final int maxCookieSize;
+
+    private final long maxAgeMillis;
+
+    private final boolean secure;
+
+    private final String sameSite;
+
+    private final SecretKeySpec[] keys;
+
+    private final byte[] keyIds;
+
+    public CookieSessionStore(final String cookieName, final int maxCookieSize, final long maxAgeMillis,
+                              final boolean secure, final String sameSite, final List<String> secrets) {
+        if (secrets.isEmpty()) {
+            throw new TechnicalException("At least one secret is required");
+        }
+        this.cookieName = cookieName;
+        this.maxCookieSize = maxCookieSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.secure = secure;
+        this.sameSite = sameSite;
+        this.keys = new SecretKeySpec[secrets.size()];
+        this.keyIds = new byte[secrets.size()];
+        for (var i = 0; i < secrets.size(); i++) {
+            val secret = secrets.get(i);
+            if (secret.length() < MIN_SECRET_LENGTH) {
+                throw new TechnicalException("Cookie session secrets must have at least " + MIN_SECRET_LENGTH + " characters");
+            }
+            val pseudoRandomKey = hkdfExtract(secret.getBytes(StandardCharsets.UTF_8));
+            keys[i] = new SecretKeySpec(hkdfExpand(pseudoRandomKey, "aes-256-gcm", 32), "AES");
+            keyIds[i] = hkdfExpand(pseudoRandomKey, "key-id", 1)[0];
+        }
+    }
+
+    @Override
+    public Optional<String> getSessionId(final WebContext context, final boolean createSession) {
+        val attributes = attributes(context);
+        var id = (String) attributes.get(SESSION_ID);
+        if (id == null && createSession) {
+            id = UUID.randomUUID().toString();
+            attributes.put(SESSION_ID, id);
+            save(exchange(context), attributes);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    @Override
+    public Optional<Object> get(final WebContext context, final String key) {
+        return Optional.ofNullable(attributes(context).get(key));
+    }
+
+    @Override
+    public void set(final WebContext context, final String key, final Object value) {
+        val attributes = attributes(context);
+        if (value == null) {
+            attributes.remove(key);
+        } else {
+            attributes.put(key, value);
+        }
+        save(exchange(context), attributes);
+    }
+
+    @Override
+    public boolean destroySession(final WebContext context) {
+        val exchange = exchange(context);
+        exchange.putAttachment(ATTRIBUTES, new LinkedHashMap<>());
+        expireCookie(exchange);
+        invalidateServerSession(exchange);
+        return true;
+    }
+
+    @Override
+    public Optional<Object> getTrackableSession(final WebContext context) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<SessionStore> buildFromTrackableSession(final WebContext context, final Object trackableSession) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean renewSession(final WebContext context) {
+        val attributes = attributes(context);
+        if (attributes.containsKey(SESSION_ID)) {
+            attributes.put(SESSION_ID, UUID.randomUUID().toString());
+            save(exchange(context), attributes);
+        }
+        return true;
+    }
+
+    private static HttpServerExchange exchange(final WebContext context) {
+        return ((UndertowWebContext) context).getExchange();
+    }
+
+    private Map<String, Object> attributes(final WebContext context) {
+        val exchange = exchange(context);
+        var attributes = exchange.getAttachment(ATTRIBUTES);
+        if (attributes == null) {
+            attributes = load(exchange);
+            exchange.putAttachment(ATTRIBUTES, attributes);
+        }
+        return attributes;
+    }
+
+    private Map<String, Object> load(final HttpServerExchange exchange) {
+        val cookie = exchange.getRequestCookie(cookieName);
+        if (cookie != null && !cookie.getValue().isEmpty()) {
+            val now = System.currentTimeMillis();
+            val payload = decrypt(cookie.getValue(), now);
+            if (payload != null) {
+                // sliding expiration: re-issue the cookie of a session still in use
+                if (now - payload.getIssuedAt() > maxAgeMillis / 2) {
+                    save(exchange, payload.getAttributes());
+                }
+                return payload.getAttributes();
+            }
+        }
+        // server-side fallback of the too large sessions
+        val attributes = new LinkedHashMap<String, Object>();
+        val session = Sessions.getSession(exchange);
+        if (session != null) {
+            for (val name : session.getAttributeNames()) {
+                attributes.put(name, session.getAttribute(name));
+            }
+        }
+        return attributes;
+    }
+
+    private void save(final HttpServerExchange exchange, final Map<String, Object> attributes) {
+        val value = encrypt(attributes, System.currentTimeMillis());
+        if (value.length() <= maxCookieSize) {
+            exchange.setResponseCookie(cookie(value).setMaxAge((int) (maxAgeMillis / 1000)));
+            invalidateServerSession(exchange);
+        } else {
+            val session = Sessions.getOrCreateSession(exchange);
+            for (val name : Set.copyOf(session.getAttributeNames())) {
+                if (!attributes.containsKey(name)) {
+                    session.removeAttribute(name);
+                }
+            }
+            for (val entry : attributes.entrySet()) {
+                session.setAttribute(entry.getKey(), entry.getValue());
+            }
+            expireCookie(exchange);
+        }
+    }
+
+    private static void invalidateServerSession(final HttpServerExchange exchange) {
+        val session = Sessions.getSession(exchange);
+        if (session != null) {
+            session.invalidate(exchange);
+        }
+    }
+
+    private void expireCookie(final HttpServerExchange exchange) {
+        exchange.setResponseCookie(cookie("").setMaxAge(0));
+    }
+
+    private Cookie cookie(final String value) {
+        return new CookieImpl(cookieName, value).setPath("/").setHttpOnly(true).setSecure(secure).setSameSiteMode(sameSite);
+    }
+
+    String encrypt(final Map<String, Object> attributes, final long now) {
+        return encrypt(SessionCodec.encode(attributes, ByteBuffer.allocate(ISSUED_AT_LENGTH).putLong(now).array()));
+    }
+
+    String encrypt(final byte[] plain) {
+        try {
+            val nonce = new byte[NONCE_LENGTH];
+            random.nextBytes(nonce);
+            val cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, keys[0], new GCMParameterSpec(TAG_LENGTH, nonce));
+            cipher.updateAAD(new byte[] { keyIds[0] });
+            val encrypted = cipher.doFinal(plain);
+            val data = ByteBuffer.allocate(1 + NONCE_LENGTH + encrypted.length)
+                    .put(keyIds[0]).put(nonce).put(encrypted);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(data.array());
+        } catch (final GeneralSecurityException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    /**
+     * Decrypt the cookie value, or return <code>null</code> if it is invalid, tampered with or expired.
+     */
+    Payload decrypt(final String value, final long now) {
+        try {
+            val data = Base64.getUrlDecoder().decode(value);
+            if (data.length <= 1 + NONCE_LENGTH) {
+                return null;
+            }
+            for (var i = 0; i < keys.length; i++) {
+                if (keyIds[i] == data[0]) {
+                    try {
+                        val cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                        cipher.init(Cipher.DECRYPT_MODE, keys[i], new GCMParameterSpec(TAG_LENGTH, data, 1, NONCE_LENGTH));
+                        cipher.updateAAD(new byte[] { data[0] });
+                        val plain = cipher.doFinal(data, 1 + NONCE_LENGTH, data.length - 1 - NONCE_LENGTH);
+                        val issuedAt = ByteBuffer.wrap(plain, 0, ISSUED_AT_LENGTH).getLong();
+                        if (issuedAt > now + CLOCK_SKEW_MILLIS || now - issuedAt > maxAgeMillis) {
+                            return null;
+                        }
+                        return new Payload(issuedAt, SessionCodec.decode(plain, ISSUED_AT_LENGTH));
+                    } catch (final GeneralSecurityException e) {
+                        // try the next key with the same identifier, if any
+                    }
+                }
+            }
+        } catch (final RuntimeException e) {
+            // invalid cookie, or attributes the codec cannot decode (rejected or unknown classes...): no session
+        }
+        return null;
+    }
+
+    static final class Payload {
+
+        private final long issuedAt;
+
+        private final Map<String, Object> attributes;
+
+        private Payload(final long issuedAt, final Map<String, Object> attributes) {
+            this.issuedAt = issuedAt;
+            this.attributes = attributes;
+        }
+
+        long getIssuedAt() {
+            return issuedAt;
+        }
+
+        Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    // HKDF (RFC 5869) with HMAC-SHA256
+    private static byte[] hkdfExtract(final byte[] secret) {
+        return hmac(HKDF_SALT, secret);
+    }
+
+    private static byte[] hkdfExpand(final byte[] pseudoRandomKey, final String info, final int length) {
+        val result = new byte[length];
+        var block = new byte[0];
+        var offset = 0;
+        for (var counter = 1; offset < length; counter++) {
+            val input = ByteBuffer.allocate(block.length + info.length() + 1)
+                    .put(block).put(info.getBytes(StandardCharsets.US_ASCII)).put((byte) counter);
+            block = hmac(pseudoRandomKey, input.array());
+            val copied = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, result, offset, copied);
+            offset += copied;
+        }
+        return result;
+    }
+
+    private static byte[] hmac(final byte[] key, final byte[] data) {
+        try {
+            val mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data);
+        } catch (final GeneralSecurityException e) {
+            throw new TechnicalException(e);
+        }
+    }
+}
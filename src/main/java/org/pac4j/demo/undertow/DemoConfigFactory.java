@@ -8,6 +8,7 @@ import org.pac4j.core.client.Clients;
 import org.pac4j.core.client.direct.AnonymousClient;
 import org.pac4j.core.config.Config;
 import org.pac4j.core.config.ConfigFactory;
+import org.pac4j.core.exception.TechnicalException;
 import org.pac4j.http.client.direct.DirectBasicAuthClient;
 import org.pac4j.http.client.direct.ParameterClient;
 import org.pac4j.http.client.indirect.FormClient;
@@ -22,15 +23,48 @@ import org.pac4j.oidc.config.OidcConfiguration;
 import org.pac4j.saml.client.SAML2Client;
 import org.pac4j.saml.config.SAML2Configuration;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.Properties;
 
 public class DemoConfigFactory implements ConfigFactory {
 
+    // identity provider documents are served from on-disk snapshots refreshed in the background
+    private final MetadataCache metadataCache = new MetadataCache(
+            Paths.get(System.getProperty("pac4j.demo.metadata.dir", "target/metadata")), Duration.ofHours(1));
+
+    // verified tokens are remembered across reloads (the signing secret does not change), so are the cache metrics
+    private final CachingTokenAuthenticator tokenAuthenticator =
+            new CachingTokenAuthenticator(new JwtAuthenticator(new SecretSignatureConfiguration(DemoServer.JWT_SALT)));
+
+    // authorization decisions are memoized for 5 minutes or until logout
+    private final AuthorizationCache authorizationCache = new AuthorizationCache(10_000, 300_000);
+
+    // the web context, session store and profiles are resolved once per request, in a cookie or in the server session
+    private final SecurityContextCache securityContextCache = new SecurityContextCache(cookieSessionStore());
+
+    // the external url of the application, for the callback and the login form
+    private final String baseUrl;
+
+    public DemoConfigFactory(final String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
     public Config build(Object... parameters) {
+        // read on each build, so that a reload picks up the changed credentials
+        val credentials = clientCredentials();
+
         val oidcConfiguration = new OidcConfiguration();
-        oidcConfiguration.setClientId("343992089165-sp0l1km383i8cbm2j5nn20kbk5dk8hor.apps.googleusercontent.com");
-        oidcConfiguration.setSecret("uR3D8ej1kIRPbqAFaxIE3HWh");
-        oidcConfiguration.setDiscoveryURI("https://accounts.google.com/.well-known/openid-configuration");
+        oidcConfiguration.setClientId(credentials.getProperty("oidc.clientId",
+                "343992089165-sp0l1km383i8cbm2j5nn20kbk5dk8hor.apps.googleusercontent.com"));
+        oidcConfiguration.setSecret(credentials.getProperty("oidc.secret", "uR3D8ej1kIRPbqAFaxIE3HWh"));
+        oidcConfiguration.setDiscoveryURI(cached("oidc-discovery.json", System.getProperty("pac4j.demo.oidc.discoveryUri",
+                "https://accounts.google.com/.well-known/openid-configuration")));
         oidcConfiguration.setUseNonce(true);
         //oidcConfiguration.setPreferredJwsAlgorithm(JWSAlgorithm.RS256);
         oidcConfiguration.addCustomParam("prompt", "consent");
@@ -40,27 +74,31 @@ public class DemoConfigFactory implements ConfigFactory {
         val oidcClient = new OidcClient(oidcConfiguration);
         oidcClient.setAuthorizationGenerator((ctx, profile) -> { profile.addRole("ROLE_ADMIN"); return Optional.of(profile); });
 
-        val cfg = new SAML2Configuration("resource:samlKeystore.jks",
-                "pac4j-demo-passwd",
-                "pac4j-demo-passwd",
-                "resource:metadata-okta.xml");
+        val cfg = new SAML2Configuration(credentials.getProperty("saml2.keystore", "resource:samlKeystore.jks"),
+                credentials.getProperty("saml2.keystorePassword", "pac4j-demo-passwd"),
+                credentials.getProperty("saml2.privateKeyPassword", "pac4j-demo-passwd"),
+                cached("saml2-idp-metadata.xml",
+                        System.getProperty("pac4j.demo.saml2.idpMetadata", "resource:metadata-okta.xml")));
         cfg.setMaximumAuthenticationLifetime(3600);
-        cfg.setServiceProviderEntityId("http://localhost:8080/callback?client_name=SAML2Client");
+        cfg.setServiceProviderEntityId(baseUrl + "/callback?client_name=SAML2Client");
         cfg.setServiceProviderMetadataPath("sp-metadata.xml");
         val saml2Client = new SAML2Client(cfg);
 
-        val facebookClient = new FacebookClient("145278422258960", "be21409ba8f39b5dae2a7de525484da8");
-        val twitterClient = new TwitterClient("CoxUiYwQOSFDReZYdjigBA", "2kAzunH5Btc4gRSaMr7D7MkyoJ5u1VzbOOzE8rBofs");
+        val facebookClient = new FacebookClient(credentials.getProperty("facebook.key", "145278422258960"),
+                credentials.getProperty("facebook.secret", "be21409ba8f39b5dae2a7de525484da8"));
+        val twitterClient = new TwitterClient(credentials.getProperty("twitter.key", "CoxUiYwQOSFDReZYdjigBA"),
+                credentials.getProperty("twitter.secret", "2kAzunH5Btc4gRSaMr7D7MkyoJ5u1VzbOOzE8rBofs"));
         // HTTP
-        val formClient = new FormClient("http://localhost:8080/loginForm.html", new SimpleTestUsernamePasswordAuthenticator());
+        val formClient = new FormClient(baseUrl + "/loginForm.html", new SimpleTestUsernamePasswordAuthenticator());
         val indirectBasicAuthClient = new IndirectBasicAuthClient(new SimpleTestUsernamePasswordAuthenticator());
 
         // CAS
-        val casConfiguration = new CasConfiguration("https://casserverpac4j.herokuapp.com/login");
+        val casConfiguration = new CasConfiguration(credentials.getProperty("cas.loginUrl",
+                "https://casserverpac4j.herokuapp.com/login"));
         val casClient = new CasClient(casConfiguration);
 
-        // REST authent with JWT for a token passed in the url as the token parameter
-        val parameterClient = new ParameterClient("token", new JwtAuthenticator(new SecretSignatureConfiguration(DemoServer.JWT_SALT)));
+        // REST authent with JWT for a token passed in the url as the token parameter (verified tokens are cached)
+        val parameterClient = new ParameterClient("token", tokenAuthenticator);
         parameterClient.setSupportGetRequest(true);
         parameterClient.setSupportPostRequest(false);
 
@@ -69,12 +107,74 @@ public class DemoConfigFactory implements ConfigFactory {
 
         val anonymousClient = new AnonymousClient();
 
-        val clients = new Clients("http://localhost:8080/callback", saml2Client, facebookClient, twitterClient,
+        val clients = new Clients(baseUrl + "/callback", saml2Client, facebookClient, twitterClient,
                 formClient, indirectBasicAuthClient, casClient, parameterClient, directBasicAuthClient, oidcClient, anonymousClient);
 
         val config = new Config(clients);
-        config.addAuthorizer("admin", new RequireAnyRoleAuthorizer("ROLE_ADMIN"));
-        config.addAuthorizer("custom", new CustomAuthorizer());
+        config.addAuthorizer("admin", new CachingAuthorizer("admin", new RequireAnyRoleAuthorizer("ROLE_ADMIN"), authorizationCache));
+        config.addAuthorizer("custom", new CachingAuthorizer("custom", new CustomAuthorizer(), authorizationCache));
+        config.setWebContextFactory(securityContextCache);
+        config.setSessionStoreFactory(securityContextCache);
         return config;
     }
+
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public CachingTokenAuthenticator getTokenAuthenticator() {
+        return tokenAuthenticator;
+    }
+
+    public AuthorizationCache getAuthorizationCache() {
+        return authorizationCache;
+    }
+
+    public SecurityContextCache getSecurityContextCache() {
+        return securityContextCache;
+    }
+
+    /**
+     * The client credentials of the properties file given by the <code>pac4j.demo.clients</code> system property,
+     * the demo credentials being the defaults.
+     */
+    private static Properties clientCredentials() {
+        val credentials = new Properties();
+        val location = System.getProperty("pac4j.demo.clients");
+        if (location != null) {
+            try (val reader = Files.newBufferedReader(Paths.get(location), StandardCharsets.UTF_8)) {
+                credentials.load(reader);
+            } catch (final IOException e) {
+                throw new TechnicalException("Cannot read the client credentials: " + location, e);
+            }
+        }
+        return credentials;
+    }
+
+    private static CookieSessionStore cookieSessionStore() {
+        if (!"cookie".equals(System.getProperty("pac4j.demo.session"))) {
+            return null;
+        }
+        // no default: a known secret would let anyone forge session cookies
+        val secrets = System.getProperty("pac4j.demo.session.cookieSecrets");
+        if (secrets == null || secrets.isBlank()) {
+            throw new TechnicalException("The pac4j.demo.session.cookieSecrets system property is required for cookie sessions");
+        }
+        return new CookieSessionStore("pac4jSession", Integer.getInteger("pac4j.demo.session.maxCookieSize", 3800),
+                Long.getLong("pac4j.demo.session.cookieMaxAgeSeconds", 1800) * 1000,
+                Boolean.parseBoolean(System.getProperty("pac4j.demo.session.cookieSecure", "true")),
+                System.getProperty("pac4j.demo.session.cookieSameSite", "Lax"), Arrays.asList(secrets.split(",")));
+    }
+
+    public void shutdown() {
+        metadataCache.shutdown();
+    }
+
+    private String cached(final String name, final String location) {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            return metadataCache.register(name, location);
+        }
+        // local stand-ins (file: or resource:) are read directly
+        return location;
+    }
 }
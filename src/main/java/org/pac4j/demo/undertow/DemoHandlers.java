@@ -14,14 +14,10 @@ import org.pac4j.core.exception.http.HttpAction;
 import org.pac4j.core.profile.UserProfile;
 import org.pac4j.core.util.Pac4jConstants;
 import org.pac4j.http.client.indirect.FormClient;
-import org.pac4j.jwt.profile.JwtGenerator;
 import org.pac4j.undertow.account.Pac4jAccount;
-import org.pac4j.undertow.context.UndertowSessionStore;
-import org.pac4j.undertow.context.UndertowWebContext;
 import org.pac4j.core.context.CallContext;
 
 import java.util.List;
-import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
 import org.pac4j.undertow.http.UndertowHttpActionAdapter;
 
 /**
@@ -32,41 +28,70 @@ import org.pac4j.undertow.http.UndertowHttpActionAdapter;
  */
 public class DemoHandlers {
 
-    public static HttpHandler indexHandler() {
+    private static final JwtIssuer JWT_ISSUER = new JwtIssuer(DemoServer.JWT_SALT);
 
-        return exchange -> {
-            val sb = new StringBuilder();
-
-            sb.append("<h1>index</h1>");
-            sb.append("<a href='facebook/index.html'>Protected url by Facebook: facebook/index.html</a> (use a real account)<br />");
-            sb.append("<a href='facebook/notprotected.html'>Not protected page: facebook/notprotected.html</a> (no authentication required)<br />");
-            sb.append("<a href='facebookadmin/index.html'>Protected url by Facebook with ROLE_ADMIN: facebookadmin/index.html</a> (use a real account)<br />");
-            sb.append("<a href='facebookcustom/index.html'>Protected url by Facebook with custom authorizer (= must be a <em>CommonProfile</em> where the username starts with 'jle'): facebookcustom/index.html</a> (login with form or basic authentication before with jle* username)<br />");
-            sb.append("<a href='twitter/index.html'>Protected url by Twitter: twitter/index.html</a> or <a href='twitter/index.html?client_name=FacebookClient'>by Facebook: twitter/index.html?client_name=FacebookClient</a> (use a real account)<br />");
-            sb.append("<a href='form/index.html'>Protected url by form authentication: form/index.html</a> (use login = pwd)<br />");
-            sb.append("<a href=\"javascript:ajaxClick();\">Click here to send AJAX request after performing form authentication</a><br />");
-            sb.append("<a href='basicauth/index.html'>Protected url by indirect basic auth: basicauth/index.html</a> (use login = pwd)<br />");
-            sb.append("<a href='cas/index.html'>Protected url by CAS: cas/index.html</a> (use login = pwd)<br />");
-            sb.append("<a href='saml2/index.html'>Protected url by SAML2: saml2/index.html</a> (use testpac4j at gmail.com / Pac4jtest)<br />");
-            sb.append("<a href='oidc/index.html'>Protected url by OpenID Connect: oidc/index.html</a> (use a real account)<br />");
-            sb.append("<a href='protected/index.html'>Protected url: protected/index.html</a> (won't start any login process)<br />");
-            sb.append("<br />");
-            sb.append("<a href='jwt.html'>Generate a JWT token</a> (after being authenticated)<br />");
-            sb.append("<a href='/dba/index.html'>Protected url by DirectBasicAuthClient: /dba/index.html</a> (POST the <em>Authorization</em> header with value: <em>Basic amxlbGV1OmpsZWxldQ==</em>) then by <a href='/dba/index.html'>ParameterClient: /dba/index.html</a> (with request parameter: token=<em>jwt_generated_token</em>)<br />");
-            sb.append("<a href='/rest-jwt/index.html'>Protected url by ParameterClient: /rest-jwt/index.html</a> (with request parameter: token=<em>jwt_generated_token</em>)<br />");
-            sb.append("<br />");
-            sb.append("<a href='/forceLogin?client_name=FacebookClient'>Force Facebook login</a> (even if already authenticated)<br />");
-            sb.append("<br />");
-            sb.append("<a href='/logout?url=/?forcepostlogouturl'>logout</a>");
-            sb.append("<br /><br />");
-            sb.append("profiles: ");
-            sb.append(getProfiles(exchange));
-            sb.append("<br /><br />");
-            sb.append("<script src=\"http://ajax.googleapis.com/ajax/libs/jquery/1.9.1/jquery.min.js\"></script>");
-            sb.append("<script src=\"assets/js/app.js\"></script>");
-
-            sendEnd(exchange, sb);
-        };
+    private static final AssetPipeline ASSETS = new AssetPipeline("/assets/js/", "assets/js/", "jquery.min.js", "app.js");
+
+    private static final HtmlTemplate INDEX = indexTemplate();
+
+    private static final HtmlTemplate PROTECTED_INDEX = new HtmlTemplate(
+            "<h1>protected area</h1><a href=\"..\">Back</a><br /><br /><br />profiles: ", "<br />");
+
+    private static final HtmlTemplate NOT_PROTECTED_INDEX = new HtmlTemplate(
+            "<h1>not protected area</h1><a href=\"..\">Back</a><br /><br /><br />profiles: ", "<br />");
+
+    private static final HtmlTemplate JWT = new HtmlTemplate(
+            "<h1>Generate JWT token</h1><a href='..'>Back</a><br /><br /><br />token: ");
+
+    private static HtmlTemplate indexTemplate() {
+        val sb = new StringBuilder();
+        sb.append("<h1>index</h1>");
+        sb.append("<a href='facebook/index.html'>Protected url by Facebook: facebook/index.html</a> (use a real account)<br />");
+        sb.append("<a href='facebook/notprotected.html'>Not protected page: facebook/notprotected.html</a> (no authentication required)<br />");
+        sb.append("<a href='facebookadmin/index.html'>Protected url by Facebook with ROLE_ADMIN: facebookadmin/index.html</a> (use a real account)<br />");
+        sb.append("<a href='facebookcustom/index.html'>Protected url by Facebook with custom authorizer (= must be a <em>CommonProfile</em> where the username starts with 'jle'): facebookcustom/index.html</a> (login with form or basic authentication before with jle* username)<br />");
+        sb.append("<a href='twitter/index.html'>Protected url by Twitter: twitter/index.html</a> or <a href='twitter/index.html?client_name=FacebookClient'>by Facebook: twitter/index.html?client_name=FacebookClient</a> (use a real account)<br />");
+        sb.append("<a href='form/index.html'>Protected url by form authentication: form/index.html</a> (use login = pwd)<br />");
+        sb.append("<a href=\"javascript:ajaxClick();\">Click here to send AJAX request after performing form authentication</a><br />");
+        sb.append("<a href='basicauth/index.html'>Protected url by indirect basic auth: basicauth/index.html</a> (use login = pwd)<br />");
+        sb.append("<a href='cas/index.html'>Protected url by CAS: cas/index.html</a> (use login = pwd)<br />");
+        sb.append("<a href='saml2/index.html'>Protected url by SAML2: saml2/index.html</a> (use testpac4j at gmail.com / Pac4jtest)<br />");
+        sb.append("<a href='oidc/index.html'>Protected url by OpenID Connect: oidc/index.html</a> (use a real account)<br />");
+        sb.append("<a href='protected/index.html'>Protected url: protected/index.html</a> (won't start any login process)<br />");
+        sb.append("<br />");
+        sb.append("<a href='jwt.html'>Generate a JWT token</a> (after being authenticated)<br />");
+        sb.append("<a href='/dba/index.html'>Protected url by DirectBasicAuthClient: /dba/index.html</a> (POST the <em>Authorization</em> header with value: <em>Basic amxlbGV1OmpsZWxldQ==</em>) then by <a href='/dba/index.html'>ParameterClient: /dba/index.html</a> (with request parameter: token=<em>jwt_generated_token</em>)<br />");
+        sb.append("<a href='/rest-jwt/index.html'>Protected url by ParameterClient: /rest-jwt/index.html</a> (with request parameter: token=<em>jwt_generated_token</em>)<br />");
+        sb.append("<br />");
+        sb.append("<a href='/forceLogin?client_name=FacebookClient'>Force Facebook login</a> (even if already authenticated)<br />");
+        sb.append("<br />");
+        sb.append("<a href='/logout?url=/?forcepostlogouturl'>logout</a>");
+        sb.append("<br /><br />");
+        sb.append("profiles: ");
+        val prefix = sb.toString();
+
+        sb.setLength(0);
+        sb.append("<br /><br />");
+        sb.append("<script src=\"").append(ASSETS.url("jquery.min.js")).append("\"></script>");
+        sb.append("<script src=\"").append(ASSETS.url("app.js")).append("\"></script>");
+
+        return new HtmlTemplate(prefix, sb.toString());
+    }
+
+    public static HtmlTemplate getIndexTemplate() {
+        return INDEX;
+    }
+
+    public static AssetPipeline getAssets() {
+        return ASSETS;
+    }
+
+    public static JwtIssuer getJwtIssuer() {
+        return JWT_ISSUER;
+    }
+
+    public static HttpHandler indexHandler() {
+        return exchange -> INDEX.send(exchange, getProfiles(exchange));
     }
 
     private static void sendEnd(final HttpServerExchange exchange, final StringBuilder sb) {
@@ -75,29 +100,9 @@ public class DemoHandlers {
         exchange.endExchange();
     }
 
-    public static HttpHandler protectedIndex = exchange -> {
-        val sb = new StringBuilder();
-        sb.append("<h1>protected area</h1>");
-        sb.append("<a href=\"..\">Back</a><br />");
-        sb.append("<br /><br />");
-        sb.append("profiles: ");
-        sb.append(getProfiles(exchange));
-        sb.append("<br />");
-
-        sendEnd(exchange, sb);
-    };
-
-    public static HttpHandler notProtectedIndex = exchange -> {
-        val sb = new StringBuilder();
-        sb.append("<h1>not protected area</h1>");
-        sb.append("<a href=\"..\">Back</a><br />");
-        sb.append("<br /><br />");
-        sb.append("profiles: ");
-        sb.append(getProfiles(exchange));
-        sb.append("<br />");
+    public static HttpHandler protectedIndex = exchange -> PROTECTED_INDEX.send(exchange, getProfiles(exchange));
 
-        sendEnd(exchange, sb);
-    };
+    public static HttpHandler notProtectedIndex = exchange -> NOT_PROTECTED_INDEX.send(exchange, getProfiles(exchange));
 
     public static HttpHandler authenticatedJsonHandler = exchange -> {
         val sb = new StringBuilder();
@@ -110,17 +115,14 @@ public class DemoHandlers {
     };
 
     private static Pac4jAccount getAccount(final HttpServerExchange exchange) {
-        val securityContext = exchange.getSecurityContext();
-        if (securityContext != null) {
-            val account = securityContext.getAuthenticatedAccount();
-            if (account instanceof Pac4jAccount) {
-                return (Pac4jAccount) account;
-            }
-        }
-        return null;
+        return RequestSecurityContext.getAccount(exchange);
     }
 
     private static List<UserProfile> getProfiles(final HttpServerExchange exchange) {
+        val context = RequestSecurityContext.get(exchange);
+        if (context != null) {
+            return context.getProfiles();
+        }
         val account = getAccount(exchange);
         if (account != null) {
             return account.getProfiles();
@@ -137,43 +139,40 @@ public class DemoHandlers {
     }
 
     public static HttpHandler loginFormHandler(final Config config) {
-        return exchange -> {
-            val formClient = (FormClient) config.getClients().findClient("FormClient").get();
-            val sb = new StringBuilder();
-            sb.append("<html><body>");
-            sb.append("<form action=\"").append(formClient.getCallbackUrl()).append("?client_name=FormClient\" method=\"POST\">");
-            sb.append("<input type=\"text\" name=\"username\" value=\"\" />");
-            sb.append("<p />");
-            sb.append("<input type=\"password\" name=\"password\" value=\"\" />");
-            sb.append("<p />");
-            sb.append("<input type=\"submit\" name=\"submit\" value=\"Submit\" />");
-            sb.append("</form>");
-            sb.append("</body></html>");
-
-            sendEnd(exchange, sb);
-        };
+        val formClient = (FormClient) config.getClients().findClient("FormClient").get();
+        val sb = new StringBuilder();
+        sb.append("<html><body>");
+        sb.append("<form action=\"").append(formClient.getCallbackUrl()).append("?client_name=FormClient\" method=\"POST\">");
+        sb.append("<input type=\"text\" name=\"username\" value=\"\" />");
+        sb.append("<p />");
+        sb.append("<input type=\"password\" name=\"password\" value=\"\" />");
+        sb.append("<p />");
+        sb.append("<input type=\"submit\" name=\"submit\" value=\"Submit\" />");
+        sb.append("</form>");
+        sb.append("</body></html>");
+        val loginForm = new HtmlTemplate(sb.toString());
+
+        return loginForm::send;
     }
 
-    public static HttpHandler jwtHandler() {
+    public static HttpHandler jwtHandler(final AuditLog auditLog) {
         return exchange -> {
             val account = getAccount(exchange);
-            val token = account != null ? new JwtGenerator(new SecretSignatureConfiguration(DemoServer.JWT_SALT))
-                    .generate(account.getProfile()) : "";
-            val sb = new StringBuilder();
-            sb.append("<h1>Generate JWT token</h1>");
-            sb.append("<a href='..'>Back</a><br />");
-            sb.append("<br /><br />");
-            sb.append("token: ");
-            sb.append(token);
-
-            sendEnd(exchange, sb);
+            var token = "";
+            if (account != null) {
+                val profile = account.getProfile();
+                token = JWT_ISSUER.generate(profile);
+                auditLog.record(AuditLog.JWT_ISSUED, exchange, profile.getClientName(), profile.getId());
+            }
+            JWT.send(exchange, token);
         };
     }
 
     public static HttpHandler forceLoginHandler(final Config config) {
         return exchange -> {
-            val context = new UndertowWebContext(exchange);
-            val sessionStore = new UndertowSessionStore(exchange);
+            val securityContext = SecurityContextCache.resolve(config, exchange);
+            val context = securityContext.getWebContext();
+            val sessionStore = securityContext.getSessionStore();
             val clientName = context.getRequestParameter(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER).get();
             val client = config.getClients().findClient(clientName).get();
             HttpAction action;
@@ -209,4 +208,12 @@ public class DemoHandlers {
         sb.append("<a href='/'>Home</a>");
         return sb.toString();
     }
+
+    public static String error429Page() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<h1>too many requests</h1>");
+        sb.append("<br />");
+        sb.append("<a href='/'>Home</a>");
+        return sb.toString();
+    }
 }
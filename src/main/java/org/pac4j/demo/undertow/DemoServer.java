@@ -2,17 +2,26 @@ package org.pac4j.demo.undertow;
 
 import io.undertow.Handlers;
 import io.undertow.Undertow;
-import io.undertow.server.handlers.PathHandler;
-import io.undertow.server.handlers.resource.ClassPathResourceManager;
+import io.undertow.UndertowOptions;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
 
-import io.undertow.server.session.InMemorySessionManager;
 import io.undertow.server.session.SessionAttachmentHandler;
 import io.undertow.server.session.SessionCookieConfig;
 import lombok.val;
 import org.pac4j.core.config.Config;
 import org.pac4j.undertow.handler.LogoutHandler;
 import org.pac4j.undertow.handler.CallbackHandler;
-import org.pac4j.undertow.handler.SecurityHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Undertow demo server demonstrating how to integrate pac4j.
@@ -22,45 +31,151 @@ import org.pac4j.undertow.handler.SecurityHandler;
  */
 public class DemoServer {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DemoServer.class);
+
     public final static String JWT_SALT = "12345678901234567890123456789012";
 
     public static void main(final String[] args) {
+        start(Integer.getInteger("pac4j.demo.port", 8080));
+    }
+
+    public static Undertow start(final int port) {
+        // the redirects need the actual port: a random one (0) is chosen before building the configuration
+        val listenPort = port != 0 ? port : freePort();
+        val configFactory = new DemoConfigFactory(System.getProperty("pac4j.demo.baseUrl", "http://localhost:" + listenPort));
+
+        // the security trail is written as JSON lines by a background thread, rotated by size
+        val auditLog = new AuditLog(Paths.get(System.getProperty("pac4j.demo.audit.file", "target/audit/audit.log")),
+                Integer.getInteger("pac4j.demo.audit.capacity", 65_536),
+                Long.getLong("pac4j.demo.audit.maxFileBytes", 64L * 1024 * 1024),
+                Integer.getInteger("pac4j.demo.audit.maxFiles", 5));
 
-        final Config config = new DemoConfigFactory().build();
+        val handlers = new HashMap<String, HttpHandler>();
+        handlers.put("index", DemoHandlers.indexHandler());
+        handlers.put("protectedIndex", DemoHandlers.protectedIndex);
+        handlers.put("notProtectedIndex", DemoHandlers.notProtectedIndex);
+        handlers.put("authenticatedJson", DemoHandlers.authenticatedJsonHandler);
+        handlers.put("jwt", DemoHandlers.jwtHandler(auditLog));
 
-        val path = new PathHandler();
+        // blocking authentication work of the offloaded routes runs on virtual threads, not on the IO threads
+        val offloader = new Offloader(Integer.getInteger("pac4j.demo.offload.maxConcurrency", 64),
+                Integer.getInteger("pac4j.demo.offload.maxQueued", 1_000));
 
-        path.addExactPath("/", SecurityHandler.build(DemoHandlers.indexHandler(), config, "AnonymousClient"));
-        path.addExactPath("/index.html", SecurityHandler.build(DemoHandlers.indexHandler(), config, "AnonymousClient"));
+        // authentication attempts per client IP and per username over a sliding window
+        val rateLimiter = new RateLimiter(Long.getLong("pac4j.demo.rateLimit.windowMillis", 60_000),
+                Integer.getInteger("pac4j.demo.rateLimit.maxPerIp", 100),
+                Integer.getInteger("pac4j.demo.rateLimit.maxPerUsername", 10));
 
-        path.addExactPath("/facebook/notprotected.html", DemoHandlers.protectedIndex);
-        path.addExactPath("/facebook/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "FacebookClient"));
-        path.addExactPath("/facebook/notprotected.html", SecurityHandler.build(DemoHandlers.notProtectedIndex, config, "AnonymousClient"));
-        path.addExactPath("/facebookadmin/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "FacebookClient", "admin"));
-        path.addExactPath("/facebookcustom/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "FacebookClient", "custom"));
-        path.addExactPath("/twitter/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "TwitterClient,FacebookClient"));
-        path.addExactPath("/form/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "FormClient"));
-        path.addExactPath("/form/index.html.json", SecurityHandler.build(DemoHandlers.authenticatedJsonHandler, config, "FormClient"));
-        path.addExactPath("/basicauth/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "IndirectBasicAuthClient"));
-        path.addExactPath("/cas/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "CasClient"));
-        path.addExactPath("/saml2/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "SAML2Client"));
-        path.addExactPath("/oidc/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "OidcClient"));
-        path.addExactPath("/protected/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config));
+        val metrics = new RequestMetrics();
 
-        path.addExactPath("/dba/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "DirectBasicAuthClient,ParameterClient"));
-        path.addExactPath("/rest-jwt/index.html", SecurityHandler.build(DemoHandlers.protectedIndex, config, "ParameterClient"));
+        // initialize the clients before serving requests: lazy (default), routes or all;
+        // on reload, the clients of the routes are always initialized before the swap
+        val startupMode = System.getProperty("pac4j.demo.startup", ClientWarmer.LAZY);
+        val reloadMode = ClientWarmer.LAZY.equals(startupMode) ? ClientWarmer.ROUTES : startupMode;
 
-        path.addExactPath("/callback", CallbackHandler.build(config, null));
-        path.addExactPath("/logout", new LogoutHandler(config, "/?defaulturlafterlogout"));
+        // the configuration and the routes are rebuilt in the background on SIGHUP, then swapped atomically
+        val application = new ReloadableHandler<>(
+                new Generation(configFactory, handlers, offloader, rateLimiter, auditLog, metrics, startupMode),
+                () -> new Generation(configFactory, handlers, offloader, rateLimiter, auditLog, metrics, reloadMode),
+                configFactory.getAuthorizationCache()::invalidateAll);
+        // the clients read the identity provider documents at initialization: a changed document rebuilds them
+        configFactory.getMetadataCache().setChangeListener(application::reload);
 
-        path.addPrefixPath("/assets/js", Handlers.resource(new ClassPathResourceManager(DemoServer.class.getClassLoader())));
+        metrics.addCounter("pac4j_demo_jwt_verification_cache_hits_total", configFactory.getTokenAuthenticator()::getHits)
+                .addCounter("pac4j_demo_jwt_verification_cache_misses_total", configFactory.getTokenAuthenticator()::getMisses)
+                .addCounter("pac4j_demo_jwt_issuer_cache_hits_total", DemoHandlers.getJwtIssuer()::getHits)
+                .addCounter("pac4j_demo_jwt_issuer_cache_misses_total", DemoHandlers.getJwtIssuer()::getMisses)
+                .addCounter("pac4j_demo_authorization_cache_hits_total", configFactory.getAuthorizationCache()::getHits)
+                .addCounter("pac4j_demo_authorization_cache_misses_total", configFactory.getAuthorizationCache()::getMisses)
+                .addCounter("pac4j_demo_session_reads_avoided_total", configFactory.getSecurityContextCache()::getAvoidedSessionReads)
+                .addCollector(offloader::writeMetrics)
+                .addCollector(rateLimiter::writeMetrics)
+                .addCollector(auditLog::writeMetrics);
 
-        path.addExactPath("/loginForm.html", DemoHandlers.loginFormHandler(config));
-        path.addExactPath("/jwt.html", SecurityHandler.build(DemoHandlers.jwtHandler(), config, "AnonymousClient"));
-        path.addExactPath("/forceLogin", DemoHandlers.forceLoginHandler(config));
+        // sessions are kept off-heap and bounded; plug a shared remote tier to scale without sticky sessions
+        val localTier = new OffHeapSessionTier(Integer.getInteger("pac4j.demo.session.maxSessions", 10_000),
+                Long.getLong("pac4j.demo.session.maxBytes", 64L * 1024 * 1024));
+        val sessionManager = new TieredSessionManager("SessionManager", localTier, null);
+        sessionManager.start();
 
-        val server = Undertow.builder().addHttpListener(8080, "localhost")
-                .setHandler(new SessionAttachmentHandler(new ErrorHandler(path), new InMemorySessionManager("SessionManager"), new SessionCookieConfig())).build();
+        val gracefulShutdown = Handlers.gracefulShutdown(metrics.wrap(new SessionAttachmentHandler(
+                new ErrorHandler(application, auditLog), sessionManager, new SessionCookieConfig())));
+        val server = Undertow.builder().addHttpListener(listenPort, "localhost")
+                .setServerOption(UndertowOptions.RECORD_REQUEST_START_TIME, true)
+                .setHandler(gracefulShutdown).build();
         server.start();
+        application.reloadOnSignal("HUP");
+
+        // on SIGTERM, new requests get a 503 while the ones in progress (like the callbacks) complete
+        val shutdownTimeout = Long.getLong("pac4j.demo.shutdown.timeoutMillis", 30_000);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gracefulShutdown.shutdown();
+            try {
+                if (!gracefulShutdown.awaitShutdown(shutdownTimeout)) {
+                    LOGGER.warn("Requests still in progress after {} ms, stopping anyway", shutdownTimeout);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            server.stop();
+            sessionManager.stop();
+            application.shutdown();
+            offloader.shutdown();
+            configFactory.shutdown();
+            auditLog.shutdown();
+        }, "shutdown"));
+        return server;
+    }
+
+    private static int freePort() {
+        try (val socket = new ServerSocket(0, 0, InetAddress.getByName("localhost"))) {
+            return socket.getLocalPort();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A generation of the application: a configuration and the routes compiled against it.
+     */
+    private static final class Generation implements HttpHandler {
+
+        private final RouteDispatcher dispatcher = new RouteDispatcher();
+
+        private Generation(final DemoConfigFactory configFactory, final Map<String, HttpHandler> handlers,
+                           final Offloader offloader, final RateLimiter rateLimiter, final AuditLog auditLog,
+                           final RequestMetrics metrics, final String startupMode) {
+            final Config config = configFactory.build();
+
+            val routeTable = RouteTable.load(System.getProperty("pac4j.demo.routes", RouteTable.DEFAULT_LOCATION));
+            routeTable.register(dispatcher, config, handlers, offloader, rateLimiter);
+
+            // the form client redirects back to the login form on bad credentials: no 401, but no profile saved
+            dispatcher.addExactPath("/callback", rateLimiter.wrap(offloader.wrap(
+                    auditLog.loginOnCallback(CallbackHandler.build(config, null), config), config),
+                    RateLimiter.REJECTED.or(AuditLog::isLoginFailure)));
+            dispatcher.addExactPath("/logout", auditLog.logout(configFactory.getAuthorizationCache()
+                    .invalidateOnLogout(new LogoutHandler(config, "/?defaulturlafterlogout"), config), config));
+
+            // assets are loaded and gzipped at startup, then served from memory
+            dispatcher.addPrefixPath("/assets/js", DemoHandlers.getAssets());
+
+            dispatcher.addExactPath("/loginForm.html", DemoHandlers.loginFormHandler(config));
+            dispatcher.addExactPath("/forceLogin", offloader.wrap(DemoHandlers.forceLoginHandler(config), config));
+            dispatcher.addExactPath("/metrics", metrics.endpoint());
+
+            for (val route : routeTable.getRoutes()) {
+                metrics.addRoute(route.getPath());
+            }
+            metrics.addRoute("/callback").addRoute("/logout").addRoute("/loginForm.html").addRoute("/forceLogin")
+                    .addRoute("/metrics").addPrefixRoute("/assets/js");
+
+            ClientWarmer.warm(config, startupMode, routeTable.getClientNames());
+        }
+
+        @Override
+        public void handleRequest(final HttpServerExchange exchange) throws Exception {
+            dispatcher.handleRequest(exchange);
+        }
     }
 }
@@ -9,12 +9,20 @@ public class ErrorHandler implements HttpHandler {
 
     private final static String ERROR_401 = DemoHandlers.error401Page();
     private final static String ERROR_403 = DemoHandlers.error403Page();
+    private final static String ERROR_429 = DemoHandlers.error429Page();
     private final static String ERROR_500 = DemoHandlers.error500Page();
 
     private final HttpHandler next;
 
+    private final AuditLog auditLog;
+
     public ErrorHandler(final HttpHandler next) {
+        this(next, null);
+    }
+
+    public ErrorHandler(final HttpHandler next, final AuditLog auditLog) {
         this.next = next;
+        this.auditLog = auditLog;
     }
 
     @Override
@@ -25,13 +33,23 @@ public class ErrorHandler implements HttpHandler {
             }
             val code = exchange.getStatusCode();
             if (code == 401) {
+                if (auditLog != null) {
+                    auditLog.record(AuditLog.UNAUTHORIZED, exchange, null, null);
+                }
                 exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
                 exchange.getResponseSender().send(ERROR_401);
                 return true;
             } else if (code == 403) {
+                if (auditLog != null) {
+                    auditLog.record(AuditLog.FORBIDDEN, exchange, null, null);
+                }
                 exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
                 exchange.getResponseSender().send(ERROR_403);
                 return true;
+            } else if (code == 429) {
+                exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
+                exchange.getResponseSender().send(ERROR_429);
+                return true;
             } else if (code == 500) {
                 exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
                 exchange.getResponseSender().send(ERROR_500);
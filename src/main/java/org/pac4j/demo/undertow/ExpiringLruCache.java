@@ -0,0 +1,116 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * A small bounded cache whose entries expire at a given time or are evicted in least-recently-used order.
+ * The removal listener is told of the entries removed by the cache itself (evicted, expired or invalidated), except by
+ * {@link #invalidateAll()}, while holding its lock.
+ *
+ * @since 6.0.0
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final int maxSize;
+
+    private final Map<K, Entry<V>> entries;
+
+    private final BiConsumer<K, V> removalListener;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public ExpiringLruCache(final int maxSize) {
+        this(maxSize, (key, value) -> {});
+    }
+
+    public ExpiringLruCache(final int maxSize, final BiConsumer<K, V> removalListener) {
+        this.maxSize = maxSize;
+        this.removalListener = removalListener;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxSize) {
+                    removalListener.accept(eldest.getKey(), eldest.getValue().value);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(final K key) {
+        val now = System.currentTimeMillis();
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                entries.remove(key);
+                removalListener.accept(key, entry.value);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(final K key, final V value, final long expiresAt) {
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    public void invalidate(final K key) {
+        synchronized (entries) {
+            val entry = entries.remove(key);
+            if (entry != null) {
+                removalListener.accept(key, entry.value);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(final V value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
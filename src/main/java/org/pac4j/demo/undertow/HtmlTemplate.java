@@ -0,0 +1,56 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An html page whose static fragments are encoded once into direct buffers, around an optional dynamic part.
+ *
+ * @since 6.0.0
+ */
+public class HtmlTemplate {
+
+    private final ByteBuffer prefix;
+
+    private final ByteBuffer suffix;
+
+    public HtmlTemplate(final String page) {
+        this(page, "");
+    }
+
+    public HtmlTemplate(final String prefix, final String suffix) {
+        this.prefix = encode(prefix);
+        this.suffix = encode(suffix);
+    }
+
+    private static ByteBuffer encode(final String fragment) {
+        val bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        val buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Send the page without dynamic part: both static fragments.
+     */
+    public void send(final HttpServerExchange exchange) {
+        exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
+        exchange.getResponseSender().send(new ByteBuffer[] { prefix.duplicate(), suffix.duplicate() });
+        exchange.endExchange();
+    }
+
+    public void send(final HttpServerExchange exchange, final Object dynamic) {
+        exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/html; charset=utf-8");
+        exchange.getResponseSender().send(render(dynamic));
+        exchange.endExchange();
+    }
+
+    public ByteBuffer[] render(final Object dynamic) {
+        val dynamicPart = ByteBuffer.wrap(String.valueOf(dynamic).getBytes(StandardCharsets.UTF_8));
+        return new ByteBuffer[] { prefix.duplicate(), dynamicPart, suffix.duplicate() };
+    }
+}
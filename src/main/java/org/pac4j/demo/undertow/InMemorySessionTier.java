@@ -0,0 +1,60 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-process stand-in for a remote session tier (a shared cache or key-value store), for tests and single node runs.
+ *
+ * @since 6.0.0
+ */
+public class InMemorySessionTier implements SessionTier {
+
+    private final Map<String, byte[]> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] load(final String id) {
+        return sessions.get(id);
+    }
+
+    @Override
+    public byte[] load(final String id, final int length) {
+        val data = sessions.get(id);
+        return data != null ? Arrays.copyOf(data, Math.min(length, data.length)) : null;
+    }
+
+    @Override
+    public void store(final String id, final byte[] data) {
+        sessions.put(id, data);
+    }
+
+    @Override
+    public void update(final String id, final int offset, final byte[] data) {
+        // copied, as the stored arrays may be read concurrently
+        sessions.computeIfPresent(id, (key, stored) -> {
+            val updated = stored.clone();
+            System.arraycopy(data, 0, updated, offset, data.length);
+            return updated;
+        });
+    }
+
+    @Override
+    public void remove(final String id) {
+        sessions.remove(id);
+    }
+
+    @Override
+    public Set<String> ids() {
+        return new HashSet<>(sessions.keySet());
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,135 @@
+package org.pac4j.demo.undertow;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.val;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.profile.JwtGenerator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues JWT tokens with a signer initialized once and shared by all the worker threads.
+ * The token of a profile is reused until the reuse window elapses or the profile changes: it is cached by typed id
+ * with the claims it was generated from (attributes, roles and linked id), which must all be equal to be reused.
+ *
+ * @since 6.0.0
+ */
+public class JwtIssuer {
+
+    private final JwtGenerator generator;
+
+    private final long reuseWindowMillis;
+
+    private final ExpiringLruCache<String, IssuedToken> tokens;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public JwtIssuer(final String secret) {
+        this(secret, 10_000, 300_000);
+    }
+
+    public JwtIssuer(final String secret, final int maxSize, final long reuseWindowMillis) {
+        this.generator = new JwtGenerator(new SharedSignerConfiguration(secret));
+        this.reuseWindowMillis = reuseWindowMillis;
+        this.tokens = new ExpiringLruCache<>(maxSize);
+    }
+
+    public String generate(final UserProfile profile) {
+        val key = profile.getTypedId();
+        val issued = tokens.get(key);
+        if (issued != null && issued.isFor(profile)) {
+            hits.increment();
+            return issued.token;
+        }
+        misses.increment();
+        val token = generator.generate(profile);
+        tokens.put(key, new IssuedToken(token, profile), System.currentTimeMillis() + reuseWindowMillis);
+        return token;
+    }
+
+    public List<String> generate(final List<UserProfile> profiles) {
+        val result = new ArrayList<String>(profiles.size());
+        for (val profile : profiles) {
+            result.add(generate(profile));
+        }
+        return result;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * A token and copies of the profile claims it was generated from.
+     */
+    private static final class IssuedToken {
+
+        private final String token;
+
+        private final Map<String, Object> attributes;
+
+        private final Set<String> roles;
+
+        private final String linkedId;
+
+        private IssuedToken(final String token, final UserProfile profile) {
+            this.token = token;
+            this.attributes = new HashMap<>(profile.getAttributes());
+            this.roles = new HashSet<>(profile.getRoles());
+            this.linkedId = profile.getLinkedId();
+        }
+
+        private boolean isFor(final UserProfile profile) {
+            return attributes.equals(profile.getAttributes()) && roles.equals(profile.getRoles())
+                    && Objects.equals(linkedId, profile.getLinkedId());
+        }
+    }
+
+    /**
+     * A secret signature configuration creating its MAC signer once instead of on every signature.
+     */
+    private static final class SharedSignerConfiguration extends SecretSignatureConfiguration {
+
+        private final MACSigner signer;
+
+        private SharedSignerConfiguration(final String secret) {
+            super(secret);
+            try {
+                this.signer = new MACSigner(secret.getBytes(StandardCharsets.UTF_8));
+            } catch (final JOSEException e) {
+                throw new TechnicalException(e);
+            }
+        }
+
+        @Override
+        public SignedJWT sign(final JWTClaimsSet claims) {
+            try {
+                val signedJwt = new SignedJWT(new JWSHeader(getAlgorithm()), claims);
+                signedJwt.sign(signer);
+                return signedJwt;
+            } catch (final JOSEException e) {
+                throw new TechnicalException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power of two microsecond buckets (from 1 microsecond to about 33 seconds),
+ * rendered in the Prometheus text format.
+ *
+ * @since 6.0.0
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 26;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS + 1];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (var i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(final long nanos) {
+        val micros = nanos / 1000;
+        // smallest i such that micros <= 2^i, the last bucket being +Inf
+        val index = micros <= 1 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(micros - 1), BUCKETS);
+        buckets[index].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public void write(final StringBuilder sb, final String name, final String labels) {
+        var cumulated = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            cumulated += buckets[i].sum();
+            sb.append(name).append("_bucket{").append(labels).append(",le=\"").append((1L << i) / 1_000_000d)
+                    .append("\"} ").append(cumulated).append('\n');
+        }
+        cumulated += buckets[BUCKETS].sum();
+        sb.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulated).append('\n');
+        sb.append(name).append("_sum{").append(labels).append("} ").append(sumNanos.sum() / 1_000_000_000d).append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(cumulated).append('\n');
+    }
+}
@@ -0,0 +1,174 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.pac4j.core.exception.TechnicalException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Caches identity provider documents (OpenID Connect discovery, SAML metadata, JWKS...) as on-disk snapshots.
+ * A registered document is served from its snapshot when one exists, so that startup does not wait for the identity
+ * provider, and is refreshed in the background before it expires. A failed refresh keeps serving the stale snapshot;
+ * a changed document triggers the change listener, as the clients only read it when they are initialized.
+ * Only the remote <code>http(s)</code> documents are registered: the local stand-ins of the real identity providers are
+ * read directly by pac4j.
+ *
+ * @since 6.0.0
+ */
+public class MetadataCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataCache.class);
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private static final long MIN_REFRESH_MILLIS = 60_000;
+
+    private final Path snapshotDirectory;
+
+    private final long maxRefreshMillis;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    private volatile Runnable changeListener;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        val thread = new Thread(runnable, "pac4j-metadata-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MetadataCache(final Path snapshotDirectory, final Duration maxRefreshInterval) {
+        this.snapshotDirectory = snapshotDirectory;
+        this.maxRefreshMillis = maxRefreshInterval.toMillis();
+    }
+
+    /**
+     * Register a document and return the location pac4j should read it from: its snapshot, fetched now (within the
+     * HTTP client timeouts) on the first start, or the original location if that first fetch failed.
+     */
+    public String register(final String name, final String location) {
+        if (!location.startsWith("http://") && !location.startsWith("https://")) {
+            throw new TechnicalException("Unsupported location: " + location);
+        }
+        val snapshot = snapshotDirectory.resolve(name);
+        if (registered.add(name + "|" + location)) {
+            if (Files.isRegularFile(snapshot)) {
+                scheduler.execute(() -> refreshPeriodically(snapshot, location));
+            } else {
+                val nextRefreshMillis = refresh(snapshot, location);
+                if (nextRefreshMillis >= 0) {
+                    scheduler.schedule(() -> refreshPeriodically(snapshot, location), nextRefreshMillis,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        if (Files.isRegularFile(snapshot)) {
+            LOGGER.info("Using the snapshot of {} for: {}", location, name);
+            return "file:" + snapshot.toAbsolutePath();
+        }
+        return location;
+    }
+
+    /**
+     * Set the action run when a refresh changed a snapshot: the clients read their documents once, at
+     * initialization, so they must be rebuilt to use the new one.
+     */
+    public void setChangeListener(final Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void refreshPeriodically(final Path snapshot, final String location) {
+        val nextRefreshMillis = refresh(snapshot, location);
+        if (nextRefreshMillis >= 0) {
+            scheduler.schedule(() -> refreshPeriodically(snapshot, location), nextRefreshMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Fetch the document into its snapshot and return the delay before the next refresh (negative if interrupted).
+     */
+    private long refresh(final Path snapshot, final String location) {
+        var nextRefreshMillis = maxRefreshMillis;
+        try {
+            val document = fetch(location);
+            val previous = Files.isRegularFile(snapshot) ? Files.readAllBytes(snapshot) : null;
+            if (!Arrays.equals(previous, document.content)) {
+                Files.createDirectories(snapshot.getParent());
+                val temporary = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), ".tmp");
+                Files.write(temporary, document.content);
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (previous != null && changeListener != null) {
+                    LOGGER.info("The document {} has changed, reloading the clients", location);
+                    changeListener.run();
+                }
+            }
+            if (document.maxAgeMillis > 0) {
+                // refresh before expiry
+                nextRefreshMillis = Math.max(MIN_REFRESH_MILLIS, Math.min(maxRefreshMillis, document.maxAgeMillis * 4 / 5));
+            }
+            LOGGER.debug("Refreshed the snapshot of {} (next refresh in {} ms)", location, nextRefreshMillis);
+        } catch (final IOException | RuntimeException e) {
+            nextRefreshMillis = MIN_REFRESH_MILLIS;
+            LOGGER.warn("Cannot refresh {}, keeping the previous snapshot: {}", location, e.toString());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        return nextRefreshMillis;
+    }
+
+    private Document fetch(final String location) throws IOException, InterruptedException {
+        val request = HttpRequest.newBuilder(URI.create(location)).timeout(Duration.ofSeconds(10)).GET().build();
+        val response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected status " + response.statusCode() + " for: " + location);
+        }
+        var maxAgeMillis = 0L;
+        val cacheControl = response.headers().firstValue("Cache-Control");
+        if (cacheControl.isPresent()) {
+            val matcher = MAX_AGE.matcher(cacheControl.get());
+            if (matcher.find()) {
+                maxAgeMillis = Long.parseLong(matcher.group(1)) * 1000L;
+            }
+        }
+        return new Document(response.body(), maxAgeMillis);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Document {
+
+        private final byte[] content;
+
+        private final long maxAgeMillis;
+
+        private Document(final byte[] content, final long maxAgeMillis) {
+            this.content = content;
+            this.maxAgeMillis = maxAgeMillis;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded lock-free ring buffer for many producers and a single consumer.
+ * When it is full, the offered elements are dropped and counted: producers never wait for the consumer.
+ *
+ * @since 6.0.0
+ */
+public class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+
+    private final int mask;
+
+    // next slot to claim by the producers
+    private final AtomicLong head = new AtomicLong();
+
+    // next slot to read by the consumer
+    private final AtomicLong tail = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public MpscRingBuffer(final int capacity) {
+        val size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public boolean offer(final E element) {
+        while (true) {
+            val claimed = head.get();
+            if (claimed - tail.get() >= slots.length()) {
+                dropped.increment();
+                return false;
+            }
+            if (head.compareAndSet(claimed, claimed + 1)) {
+                // a volatile write: a consumer going to sleep either sees the element or is seen as idle
+                slots.set((int) (claimed & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Take the next element, or <code>null</code> if none is published yet. Must only be called by the consumer.
+     */
+    public E poll() {
+        val next = tail.get();
+        val index = (int) (next & mask);
+        val element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        tail.lazySet(next + 1);
+        return element;
+    }
+
+    /**
+     * Tell whether no element is published yet. Must only be called by the consumer.
+     */
+    public boolean isEmpty() {
+        return slots.get((int) (tail.get() & mask)) == null;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,122 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A local session tier keeping the serialized sessions in direct buffers, outside of the heap.
+ * When the session count or byte limit is exceeded, the least recently used sessions are evicted.
+ * The buffer of a session is reused when the new data fits in it. A session larger than the byte limit is rejected.
+ * The expired sessions are swept by the {@link TieredSessionManager}, which knows their layout.
+ *
+ * @since 6.0.0
+ */
+public class OffHeapSessionTier implements SessionTier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapSessionTier.class);
+
+    private final int maxSessions;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, ByteBuffer> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    public OffHeapSessionTier(final int maxSessions, final long maxBytes) {
+        this.maxSessions = maxSessions;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized byte[] load(final String id) {
+        val buffer = sessions.get(id);
+        if (buffer == null) {
+            return null;
+        }
+        val data = new byte[buffer.limit()];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    @Override
+    public synchronized byte[] load(final String id, final int length) {
+        val buffer = sessions.get(id);
+        if (buffer == null) {
+            return null;
+        }
+        val data = new byte[Math.min(length, buffer.limit())];
+        buffer.duplicate().get(data);
+        return data;
+    }
+
+    @Override
+    public synchronized void store(final String id, final byte[] data) {
+        if (data.length > maxBytes) {
+            // it would evict all the other sessions, then itself
+            LOGGER.warn("Session of {} bytes larger than the {} bytes of the tier, not stored", data.length, maxBytes);
+            remove(id);
+            return;
+        }
+        val previous = sessions.get(id);
+        if (previous != null && previous.capacity() >= data.length) {
+            previous.clear();
+            previous.put(data).flip();
+            return;
+        }
+        val buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        sessions.put(id, buffer);
+        if (previous != null) {
+            bytes -= previous.capacity();
+        }
+        bytes += data.length;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, ByteBuffer>> iterator = sessions.entrySet().iterator();
+        while ((sessions.size() > maxSessions || bytes > maxBytes) && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().capacity();
+            iterator.remove();
+        }
+    }
+
+    @Override
+    public synchronized void update(final String id, final int offset, final byte[] data) {
+        val buffer = sessions.get(id);
+        if (buffer != null && offset + data.length <= buffer.limit()) {
+            buffer.duplicate().position(offset).put(data);
+        }
+    }
+
+    @Override
+    public synchronized void remove(final String id) {
+        val previous = sessions.remove(id);
+        if (previous != null) {
+            bytes -= previous.capacity();
+        }
+    }
+
+    @Override
+    public synchronized Set<String> ids() {
+        return new HashSet<>(sessions.keySet());
+    }
+
+    @Override
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,254 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import lombok.val;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.Pac4jConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offloads blocking security work (identity provider calls, authenticators...) from the IO threads to virtual threads
+ * (or to a cached thread pool before Java 21), with a concurrency limit and queue time metrics per client.
+ * The requests over the limit wait in the queue of their client, not on a thread: a slow identity provider holds at
+ * most its concurrency limit of threads. Once the queue of a client is full, its next requests are rejected with a
+ * <code>503 Service Unavailable</code> until it drains.
+ *
+ * @since 6.0.0
+ */
+public class Offloader {
+
+    private static final String DEFAULT_KEY = "default";
+
+    private static final String[] CLIENT_PARAMETERS = { Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER, "force_client" };
+
+    private final ExecutorService executor = newExecutor();
+
+    private final Map<String, ClientQueue> queues = new ConcurrentHashMap<>();
+
+    private final int maxConcurrency;
+
+    private final int maxQueued;
+
+    public Offloader(final int maxConcurrency, final int maxQueued) {
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                val thread = new Thread(runnable, "pac4j-offload");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Wrap a handler so that it runs on the offload executor, limited by the queue of the client of the route: the
+     * client requested by the <code>client_name</code> or <code>force_client</code> parameter if it is one of the
+     * clients of the route, its first client otherwise.
+     */
+    public HttpHandler wrap(final HttpHandler next, final String clients) {
+        val names = new ArrayList<String>();
+        if (clients != null) {
+            for (val name : clients.split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+                names.add(name.trim());
+            }
+        }
+        if (names.isEmpty()) {
+            names.add(DEFAULT_KEY);
+        }
+        return exchange -> offload(exchange, next, exchange.isInIoThread() ? queue(routeClient(exchange, names)) : null);
+    }
+
+    /**
+     * Wrap a handler so that it runs on the offload executor, limited by the queue of the client requested by the
+     * <code>client_name</code> parameter.
+     */
+    public HttpHandler wrap(final HttpHandler next, final Config config) {
+        return exchange -> offload(exchange, next, exchange.isInIoThread() ? queue(requestedClient(exchange, config)) : null);
+    }
+
+    private static void offload(final HttpServerExchange exchange, final HttpHandler next, final ClientQueue queue)
+            throws Exception {
+        if (!exchange.isInIoThread()) {
+            next.handleRequest(exchange);
+            return;
+        }
+        if (!queue.reserve()) {
+            exchange.setStatusCode(503);
+            exchange.getResponseHeaders().put(Headers.RETRY_AFTER, "1");
+            exchange.endExchange();
+            return;
+        }
+        val queuedAt = System.nanoTime();
+        exchange.dispatch(queue, ex -> queue.run(ex, next, queuedAt));
+    }
+
+    private static String routeClient(final HttpServerExchange exchange, final List<String> names) {
+        for (val parameter : CLIENT_PARAMETERS) {
+            val values = exchange.getQueryParameters().get(parameter);
+            if (values != null && !values.isEmpty() && names.contains(values.peekFirst())) {
+                return values.peekFirst();
+            }
+        }
+        return names.get(0);
+    }
+
+    // only the configured client names are used as keys (and metric labels), whatever the parameter sent
+    private static String requestedClient(final HttpServerExchange exchange, final Config config) {
+        val values = exchange.getQueryParameters().get(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER);
+        if (values == null || values.isEmpty()) {
+            return DEFAULT_KEY;
+        }
+        return config.getClients().findClient(values.peekFirst()).map(Client::getName).orElse(DEFAULT_KEY);
+    }
+
+    private ClientQueue queue(final String key) {
+        return queues.computeIfAbsent(key, k -> new ClientQueue(executor, maxConcurrency, maxQueued));
+    }
+
+    public Map<String, ClientQueue> getQueues() {
+        return Collections.unmodifiableMap(queues);
+    }
+
+    public void writeMetrics(final StringBuilder sb) {
+        for (val entry : queues.entrySet()) {
+            val labels = "{client=\"" + entry.getKey() + "\"}";
+            val queue = entry.getValue();
+            sb.append("pac4j_demo_offload_total").append(labels).append(' ').append(queue.getCount()).append('\n');
+            sb.append("pac4j_demo_offload_queue_seconds_total").append(labels).append(' ')
+                    .append(queue.getTotalQueueNanos() / 1_000_000_000d).append('\n');
+            sb.append("pac4j_demo_offload_queue_seconds_max").append(labels).append(' ')
+                    .append(queue.getMaxQueueNanos() / 1_000_000_000d).append('\n');
+            sb.append("pac4j_demo_offload_queued").append(labels).append(' ').append(queue.getQueued()).append('\n');
+            sb.append("pac4j_demo_offload_rejected_total").append(labels).append(' ').append(queue.getRejected()).append('\n');
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public static final class ClientQueue implements Executor {
+
+        private final Executor executor;
+
+        private final Semaphore permits;
+
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+        private final int maxQueued;
+
+        // the requests waiting for a permit, counted apart as the size of the queue is not constant-time
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalQueueNanos = new LongAdder();
+
+        private final AtomicLong maxQueueNanos = new AtomicLong();
+
+        private ClientQueue(final Executor executor, final int maxConcurrency, final int maxQueued) {
+            this.executor = executor;
+            this.permits = new Semaphore(maxConcurrency);
+            this.maxQueued = maxQueued;
+        }
+
+        /**
+         * Reserve a place in the queue for a request, unless it is full.
+         */
+        private boolean reserve() {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Queue the task, then run it on the offload executor once a permit is available.
+         */
+        @Override
+        public void execute(final Runnable task) {
+            pending.add(task);
+            drain();
+        }
+
+        // a task queued while all the permits are taken is picked by the task releasing the next permit
+        private void drain() {
+            while (!pending.isEmpty() && permits.tryAcquire()) {
+                val task = pending.poll();
+                if (task == null) {
+                    permits.release();
+                    continue;
+                }
+                queued.decrementAndGet();
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                        drain();
+                    }
+                });
+            }
+        }
+
+        private void run(final HttpServerExchange exchange, final HttpHandler next, final long queuedAt) throws Exception {
+            val queueNanos = System.nanoTime() - queuedAt;
+            count.increment();
+            totalQueueNanos.add(queueNanos);
+            maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+            exchange.startBlocking();
+            next.handleRequest(exchange);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalQueueNanos() {
+            return totalQueueNanos.sum();
+        }
+
+        public long getMaxQueueNanos() {
+            return maxQueueNanos.get();
+        }
+
+        public int getAvailablePermits() {
+            return permits.availablePermits();
+        }
+
+        public int getQueued() {
+            return queued.get();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+    }
+}
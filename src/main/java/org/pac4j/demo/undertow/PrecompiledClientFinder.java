@@ -0,0 +1,56 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.finder.ClientFinder;
+import org.pac4j.core.client.finder.DefaultSecurityClientFinder;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.util.Pac4jConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A security client finder returning the clients resolved at startup for the client names of the declared routes,
+ * instead of splitting and looking up the names on each request.
+ * Requests selecting a client by parameter and unknown client names are handled by the default finder.
+ *
+ * @since 6.0.0
+ */
+public class PrecompiledClientFinder implements ClientFinder {
+
+    private static final String FORCE_CLIENT_PARAMETER = "force_client";
+
+    private final ClientFinder defaultFinder = new DefaultSecurityClientFinder();
+
+    private final Map<String, List<Client>> compiledClients = new HashMap<>();
+
+    public synchronized void compile(final Clients clients, final String clientNames) {
+        if (clientNames == null || compiledClients.containsKey(clientNames)) {
+            return;
+        }
+        val resolved = new ArrayList<Client>();
+        for (val name : clientNames.split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+            val trimmedName = name.trim();
+            resolved.add(clients.findClient(trimmedName)
+                    .orElseThrow(() -> new TechnicalException("Unknown client: " + trimmedName)));
+        }
+        compiledClients.put(clientNames, Collections.unmodifiableList(resolved));
+    }
+
+    @Override
+    public List<Client> find(final Clients clients, final WebContext context, final String clientNames) {
+        val resolved = clientNames != null ? compiledClients.get(clientNames) : null;
+        if (resolved == null
+                || context.getRequestParameter(Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER).isPresent()
+                || context.getRequestParameter(FORCE_CLIENT_PARAMETER).isPresent()) {
+            return defaultFinder.find(clients, context, clientNames);
+        }
+        return resolved;
+    }
+}
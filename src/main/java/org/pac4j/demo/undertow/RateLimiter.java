@@ -0,0 +1,243 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.form.FormDataParser;
+import io.undertow.server.handlers.form.FormEncodedDataDefinition;
+import io.undertow.server.handlers.form.FormParserFactory;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import lombok.val;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Limits the failed authentication attempts per client IP and per username over a sliding window, answering
+ * <code>429 Too Many Requests</code> (rendered by the {@link ErrorHandler}) once a limit is reached: only the
+ * requests presenting credentials (an <code>Authorization</code> header, a login form or a token parameter) which
+ * were rejected are counted, so the legitimate API calls and the authentication challenges are not capped.
+ * The failures are recorded when the exchange completes and counted in lock-free count-min sketches, so the memory
+ * is bounded whatever the number of attackers or usernames; the counts can only be overestimated.
+ *
+ * @since 6.0.0
+ */
+public class RateLimiter {
+
+    private static final int DEPTH = 4;
+
+    private static final int WIDTH = 1 << 14;
+
+    private static final String USERNAME_PARAMETER = "username";
+
+    private static final String PASSWORD_PARAMETER = "password";
+
+    private static final String TOKEN_PARAMETER = "token";
+
+    /**
+     * The presented credentials were rejected: <code>401</code> or <code>403</code> response.
+     */
+    public static final Predicate<HttpServerExchange> REJECTED =
+            exchange -> exchange.getStatusCode() == 401 || exchange.getStatusCode() == 403;
+
+    // the login forms are url-encoded: no multipart parser, which would leave its temporary files behind
+    private final FormParserFactory formParserFactory = FormParserFactory.builder(false)
+            .addParser(new FormEncodedDataDefinition()).build();
+
+    private final long windowMillis;
+
+    private final int maxPerIp;
+
+    private final int maxPerUsername;
+
+    // the sketches of the current and previous windows, reused alternately
+    private final AtomicLongArray[] sketches = { new AtomicLongArray(DEPTH * WIDTH), new AtomicLongArray(DEPTH * WIDTH) };
+
+    private final AtomicLong[] windows = { new AtomicLong(), new AtomicLong() };
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder limitedByIp = new LongAdder();
+
+    private final LongAdder limitedByUsername = new LongAdder();
+
+    public RateLimiter(final long windowMillis, final int maxPerIp, final int maxPerUsername) {
+        this.windowMillis = windowMillis;
+        this.maxPerIp = maxPerIp;
+        this.maxPerUsername = maxPerUsername;
+    }
+
+    /**
+     * Wrap the handler to rate limit its requests, a {@link #REJECTED} response to credentials being a failed attempt.
+     */
+    public HttpHandler wrap(final HttpHandler next) {
+        return wrap(next, REJECTED);
+    }
+
+    /**
+     * Wrap the handler to rate limit its requests, the failed attempts being the completed exchanges which presented
+     * credentials and match the predicate. The url-encoded form of the POST requests is parsed without blocking
+     * first to read the username.
+     */
+    public HttpHandler wrap(final HttpHandler next, final Predicate<HttpServerExchange> failed) {
+        return exchange -> {
+            if (Methods.POST.equals(exchange.getRequestMethod())) {
+                val parser = formParserFactory.createParser(exchange);
+                if (parser != null) {
+                    parser.parse(ex -> limit(ex, next, failed));
+                    return;
+                }
+            }
+            limit(exchange, next, failed);
+        };
+    }
+
+    private void limit(final HttpServerExchange exchange, final HttpHandler next,
+                       final Predicate<HttpServerExchange> failed) throws Exception {
+        val now = System.currentTimeMillis();
+        val ipKey = "ip:" + exchange.getSourceAddress().getAddress().getHostAddress();
+        if (isLimited(ipKey, maxPerIp, now)) {
+            limitedByIp.increment();
+            reject(exchange);
+            return;
+        }
+        val username = username(exchange);
+        val usernameKey = username != null ? "user:" + username : null;
+        if (usernameKey != null && isLimited(usernameKey, maxPerUsername, now)) {
+            limitedByUsername.increment();
+            reject(exchange);
+            return;
+        }
+        allowed.increment();
+        // a request without credentials (a challenge, an OAuth or SAML response) cannot be a guessing attempt
+        if (!hasCredentials(exchange)) {
+            next.handleRequest(exchange);
+            return;
+        }
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            try {
+                if (failed.test(ex)) {
+                    failures.increment();
+                    val completed = System.currentTimeMillis();
+                    recordFailure(ipKey, completed);
+                    if (usernameKey != null) {
+                        recordFailure(usernameKey, completed);
+                    }
+                }
+            } finally {
+                nextListener.proceed();
+            }
+        });
+        next.handleRequest(exchange);
+    }
+
+    private void reject(final HttpServerExchange exchange) {
+        exchange.setStatusCode(429);
+        exchange.getResponseHeaders().put(Headers.RETRY_AFTER, Long.toString(Math.max(1, windowMillis / 1000)));
+        exchange.endExchange();
+    }
+
+    private static boolean hasCredentials(final HttpServerExchange exchange) {
+        if (exchange.getRequestHeaders().contains(Headers.AUTHORIZATION)
+                || exchange.getQueryParameters().containsKey(TOKEN_PARAMETER)) {
+            return true;
+        }
+        val form = exchange.getAttachment(FormDataParser.FORM_DATA);
+        return form != null && (form.contains(USERNAME_PARAMETER) || form.contains(PASSWORD_PARAMETER));
+    }
+
+    private static String username(final HttpServerExchange exchange) {
+        val authorization = exchange.getRequestHeaders().getFirst(Headers.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            try {
+                val decoded = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), StandardCharsets.UTF_8);
+                val separator = decoded.indexOf(':');
+                return separator < 0 ? decoded : decoded.substring(0, separator);
+            } catch (final IllegalArgumentException e) {
+                return null;
+            }
+        }
+        val form = exchange.getAttachment(FormDataParser.FORM_DATA);
+        if (form != null) {
+            val value = form.getFirst(USERNAME_PARAMETER);
+            if (value != null && !value.isFileItem()) {
+                return value.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tell whether the failures of the key reached the limit, the count of the previous window being weighted by
+     * the part of it still covered by the sliding window.
+     */
+    boolean isLimited(final String key, final int limit, final long now) {
+        val window = now / windowMillis;
+        val slot = (int) (window & 1);
+        val previousSlot = (int) ((window - 1) & 1);
+        val previousWeight = windows[previousSlot].get() == window - 1
+                ? 1d - (double) (now % windowMillis) / windowMillis : 0d;
+        val hasCurrent = windows[slot].get() == window;
+        if (!hasCurrent && previousWeight == 0d) {
+            return false;
+        }
+
+        val hash = mix(key.hashCode());
+        var currentCount = Long.MAX_VALUE;
+        var previousCount = Long.MAX_VALUE;
+        for (var row = 0; row < DEPTH; row++) {
+            val index = index(hash, row);
+            currentCount = Math.min(currentCount, hasCurrent ? sketches[slot].get(index) : 0);
+            previousCount = Math.min(previousCount, sketches[previousSlot].get(index));
+        }
+        return currentCount + previousCount * previousWeight >= limit;
+    }
+
+    /**
+     * Count a failed attempt for the key.
+     */
+    void recordFailure(final String key, final long now) {
+        val current = sketch(now / windowMillis);
+        val hash = mix(key.hashCode());
+        for (var row = 0; row < DEPTH; row++) {
+            current.incrementAndGet(index(hash, row));
+        }
+    }
+
+    private static int index(final long hash, final int row) {
+        return row * WIDTH + (int) ((hash >>> (row * 16)) & (WIDTH - 1));
+    }
+
+    private AtomicLongArray sketch(final long window) {
+        val slot = (int) (window & 1);
+        val sketch = sketches[slot];
+        val owner = windows[slot].get();
+        // the first request of a new window clears the sketch left by the window before the previous one
+        if (owner != window && windows[slot].compareAndSet(owner, window)) {
+            for (var i = 0; i < sketch.length(); i++) {
+                sketch.set(i, 0);
+            }
+        }
+        return sketch;
+    }
+
+    private static long mix(final long value) {
+        var h = value * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 29);
+    }
+
+    public void writeMetrics(final StringBuilder sb) {
+        sb.append("pac4j_demo_rate_limit_allowed_total ").append(allowed.sum()).append('\n');
+        sb.append("pac4j_demo_rate_limit_failures_total ").append(failures.sum()).append('\n');
+        sb.append("pac4j_demo_rate_limit_rejected_total{key=\"ip\"} ").append(limitedByIp.sum()).append('\n');
+        sb.append("pac4j_demo_rate_limit_rejected_total{key=\"username\"} ").append(limitedByUsername.sum()).append('\n');
+    }
+}
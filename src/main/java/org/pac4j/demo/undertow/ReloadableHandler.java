@@ -0,0 +1,87 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import lombok.val;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * A handler delegating to the current generation of the application, which is rebuilt in the background on reload
+ * and then swapped in with a single volatile write: the requests in progress complete on the previous generation,
+ * the next ones run on the new one. If the rebuild fails, the current generation is kept.
+ *
+ * @since 6.0.0
+ */
+public class ReloadableHandler<T extends HttpHandler> implements HttpHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReloadableHandler.class);
+
+    private final Supplier<T> builder;
+
+    private final Runnable afterSwap;
+
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+        val thread = new Thread(runnable, "reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile T current;
+
+    public ReloadableHandler(final T initial, final Supplier<T> builder, final Runnable afterSwap) {
+        this.current = initial;
+        this.builder = builder;
+        this.afterSwap = afterSwap;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        current.handleRequest(exchange);
+    }
+
+    public T getCurrent() {
+        return current;
+    }
+
+    /**
+     * Rebuild the application in the background, the reloads being serialized.
+     */
+    public CompletableFuture<Boolean> reload() {
+        return CompletableFuture.supplyAsync(() -> {
+            val start = System.nanoTime();
+            try {
+                current = builder.get();
+                afterSwap.run();
+                LOGGER.info("Reloaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+                return true;
+            } catch (final RuntimeException e) {
+                LOGGER.error("Reload failed, keeping the current configuration", e);
+                return false;
+            }
+        }, reloader);
+    }
+
+    /**
+     * Reload when the process receives the signal (like <code>HUP</code>), if the platform supports it.
+     */
+    // sun.misc.Signal (jdk.unsupported module) is the only JDK API to handle a signal and has no public replacement;
+    // it is referenced by its qualified name here only, so that no import carries the internal API warning
+    @SuppressWarnings("sunapi")
+    public void reloadOnSignal(final String name) {
+        try {
+            sun.misc.Signal.handle(new sun.misc.Signal(name), signal -> reload());
+        } catch (final IllegalArgumentException | UnsupportedOperationException e) {
+            LOGGER.warn("Cannot reload on SIG{}: {}", name, e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        reloader.shutdownNow();
+    }
+}
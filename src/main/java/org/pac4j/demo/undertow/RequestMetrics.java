@@ -0,0 +1,215 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.ExchangeCompletionListener;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import lombok.val;
+import org.pac4j.undertow.account.Pac4jAccount;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Request metrics of the demo: counts per route, per client and per outcome, and latency histograms per route.
+ * The handler returned by {@link #wrap(HttpHandler)} records them without allocation once the routes are declared,
+ * and {@link #endpoint()} exposes them in the Prometheus text format.
+ *
+ * @since 6.0.0
+ */
+public class RequestMetrics {
+
+    private static final int[] OUTCOMES = { 200, 302, 401, 403, 429, 500 };
+
+    private static final String OTHER = "other";
+
+    private static final String NO_CLIENT = "none";
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private final List<String> prefixes = new ArrayList<>();
+
+    private final RouteMetrics otherRoute = new RouteMetrics(OTHER);
+
+    private final Map<String, Outcomes> clients = new ConcurrentHashMap<>();
+
+    private final Map<String, LongSupplier> counters = new ConcurrentHashMap<>();
+
+    private final List<Consumer<StringBuilder>> collectors = new CopyOnWriteArrayList<>();
+
+    /**
+     * Declare an exact route, the requests of undeclared routes being recorded under the "other" route.
+     */
+    public RequestMetrics addRoute(final String path) {
+        routes.computeIfAbsent(path, RouteMetrics::new);
+        return this;
+    }
+
+    public synchronized RequestMetrics addPrefixRoute(final String prefix) {
+        routes.computeIfAbsent(prefix, RouteMetrics::new);
+        if (!prefixes.contains(prefix)) {
+            prefixes.add(prefix);
+        }
+        return this;
+    }
+
+    /**
+     * Register an additional counter, named with its optional Prometheus labels.
+     */
+    public RequestMetrics addCounter(final String name, final LongSupplier counter) {
+        counters.put(name, counter);
+        return this;
+    }
+
+    /**
+     * Register a collector appending its own metrics in the Prometheus text format.
+     */
+    public RequestMetrics addCollector(final Consumer<StringBuilder> collector) {
+        collectors.add(collector);
+        return this;
+    }
+
+    public HttpHandler wrap(final HttpHandler next) {
+        val listener = (ExchangeCompletionListener) (exchange, nextListener) -> {
+            try {
+                record(exchange);
+            } finally {
+                nextListener.proceed();
+            }
+        };
+        return exchange -> {
+            exchange.addExchangeCompleteListener(listener);
+            next.handleRequest(exchange);
+        };
+    }
+
+    private void record(final HttpServerExchange exchange) {
+        val status = exchange.getStatusCode();
+        val route = route(exchange.getRequestPath());
+        route.outcomes.increment(status);
+        val startTime = exchange.getRequestStartTime();
+        if (startTime > 0) {
+            route.latency.record(System.nanoTime() - startTime);
+        }
+        clientOutcomes(exchange).increment(status);
+    }
+
+    private RouteMetrics route(final String path) {
+        val route = routes.get(path);
+        if (route != null) {
+            return route;
+        }
+        for (val prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return routes.get(prefix);
+            }
+        }
+        return otherRoute;
+    }
+
+    private Outcomes clientOutcomes(final HttpServerExchange exchange) {
+        var clientName = NO_CLIENT;
+        val securityContext = exchange.getSecurityContext();
+        if (securityContext != null && securityContext.getAuthenticatedAccount() instanceof Pac4jAccount) {
+            val profile = ((Pac4jAccount) securityContext.getAuthenticatedAccount()).getProfile();
+            if (profile != null && profile.getClientName() != null) {
+                clientName = profile.getClientName();
+            }
+        }
+        var outcomes = clients.get(clientName);
+        if (outcomes == null) {
+            outcomes = clients.computeIfAbsent(clientName, name -> new Outcomes());
+        }
+        return outcomes;
+    }
+
+    public HttpHandler endpoint() {
+        return exchange -> {
+            exchange.getResponseHeaders().add(Headers.CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8");
+            exchange.getResponseSender().send(render());
+            exchange.endExchange();
+        };
+    }
+
+    public String render() {
+        val sb = new StringBuilder(16_384);
+        sb.append("# TYPE pac4j_demo_requests_total counter\n");
+        for (val route : allRoutes()) {
+            route.outcomes.write(sb, "pac4j_demo_requests_total", "route=\"" + route.path + "\"");
+        }
+        sb.append("# TYPE pac4j_demo_client_requests_total counter\n");
+        for (val entry : clients.entrySet()) {
+            entry.getValue().write(sb, "pac4j_demo_client_requests_total", "client=\"" + entry.getKey() + "\"");
+        }
+        sb.append("# TYPE pac4j_demo_request_duration_seconds histogram\n");
+        for (val route : allRoutes()) {
+            if (route.latency.getCount() > 0) {
+                route.latency.write(sb, "pac4j_demo_request_duration_seconds", "route=\"" + route.path + "\"");
+            }
+        }
+        for (val entry : counters.entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+        for (val collector : collectors) {
+            collector.accept(sb);
+        }
+        return sb.toString();
+    }
+
+    private List<RouteMetrics> allRoutes() {
+        val all = new ArrayList<>(routes.values());
+        all.add(otherRoute);
+        return all;
+    }
+
+    private static final class RouteMetrics {
+
+        private final String path;
+
+        private final Outcomes outcomes = new Outcomes();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteMetrics(final String path) {
+            this.path = path;
+        }
+    }
+
+    private static final class Outcomes {
+
+        private final LongAdder[] counts = new LongAdder[OUTCOMES.length + 1];
+
+        private Outcomes() {
+            for (var i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        private void increment(final int status) {
+            for (var i = 0; i < OUTCOMES.length; i++) {
+                if (OUTCOMES[i] == status) {
+                    counts[i].increment();
+                    return;
+                }
+            }
+            counts[OUTCOMES.length].increment();
+        }
+
+        private void write(final StringBuilder sb, final String name, final String labels) {
+            for (var i = 0; i < counts.length; i++) {
+                val count = counts[i].sum();
+                if (count > 0) {
+                    sb.append(name).append('{').append(labels).append(",outcome=\"")
+                            .append(i < OUTCOMES.length ? String.valueOf(OUTCOMES[i]) : OTHER)
+                            .append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+    }
+}
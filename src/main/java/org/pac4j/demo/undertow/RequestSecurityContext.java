@@ -0,0 +1,100 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
+import lombok.val;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.undertow.account.Pac4jAccount;
+import org.pac4j.undertow.context.UndertowWebContext;
+
+import java.util.List;
+
+/**
+ * The pac4j web context, session store and account of a request, resolved once and attached to the exchange.
+ *
+ * @since 6.0.0
+ */
+public class RequestSecurityContext {
+
+    private static final AttachmentKey<RequestSecurityContext> ATTACHMENT_KEY = AttachmentKey.create(RequestSecurityContext.class);
+
+    private final HttpServerExchange exchange;
+
+    private final UndertowWebContext webContext;
+
+    private final SessionStore sessionStore;
+
+    private boolean accountResolved;
+
+    private Pac4jAccount account;
+
+    private RequestSecurityContext(final HttpServerExchange exchange, final SessionStore sessionStore) {
+        this.exchange = exchange;
+        this.webContext = new UndertowWebContext(exchange);
+        this.sessionStore = sessionStore;
+    }
+
+    /**
+     * Return the context attached to the exchange, attaching a new one with the given session store if none.
+     */
+    static RequestSecurityContext attach(final HttpServerExchange exchange, final SessionStore sessionStore) {
+        var context = exchange.getAttachment(ATTACHMENT_KEY);
+        if (context == null) {
+            context = new RequestSecurityContext(exchange, sessionStore);
+            exchange.putAttachment(ATTACHMENT_KEY, context);
+        }
+        return context;
+    }
+
+    /**
+     * Return the context attached to the exchange, if any.
+     */
+    public static RequestSecurityContext get(final HttpServerExchange exchange) {
+        return exchange.getAttachment(ATTACHMENT_KEY);
+    }
+
+    /**
+     * Return the account authenticated by pac4j for the exchange, if any.
+     */
+    public static Pac4jAccount getAccount(final HttpServerExchange exchange) {
+        val context = get(exchange);
+        if (context != null) {
+            return context.getAccount();
+        }
+        return resolveAccount(exchange);
+    }
+
+    private static Pac4jAccount resolveAccount(final HttpServerExchange exchange) {
+        val securityContext = exchange.getSecurityContext();
+        if (securityContext != null) {
+            val account = securityContext.getAuthenticatedAccount();
+            if (account instanceof Pac4jAccount) {
+                return (Pac4jAccount) account;
+            }
+        }
+        return null;
+    }
+
+    public UndertowWebContext getWebContext() {
+        return webContext;
+    }
+
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    public Pac4jAccount getAccount() {
+        // the account is only set once the access is granted
+        if (!accountResolved) {
+            account = resolveAccount(exchange);
+            accountResolved = account != null;
+        }
+        return account;
+    }
+
+    public List<UserProfile> getProfiles() {
+        val account = getAccount();
+        return account != null ? account.getProfiles() : null;
+    }
+}
@@ -0,0 +1,117 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import lombok.val;
+
+import java.util.Arrays;
+
+/**
+ * Dispatches requests on exact paths and path prefixes stored in a character trie, walked without any allocation.
+ * Like the {@link io.undertow.server.handlers.PathHandler}, a prefix only matches on a path segment boundary and
+ * the longest prefix wins. All the routes must be added before the dispatcher starts serving requests.
+ *
+ * @since 6.0.0
+ */
+public class RouteDispatcher implements HttpHandler {
+
+    private final Node root = new Node();
+
+    private final HttpHandler defaultHandler;
+
+    public RouteDispatcher() {
+        this(ResponseCodeHandler.HANDLE_404);
+    }
+
+    public RouteDispatcher(final HttpHandler defaultHandler) {
+        this.defaultHandler = defaultHandler;
+    }
+
+    public synchronized RouteDispatcher addExactPath(final String path, final HttpHandler handler) {
+        node(path).exact = handler;
+        return this;
+    }
+
+    public synchronized RouteDispatcher addPrefixPath(final String prefix, final HttpHandler handler) {
+        // like the PathHandler, the root prefix leaves the whole path to its handler
+        val normalized = prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        node(normalized).prefix = handler;
+        return this;
+    }
+
+    private Node node(final String path) {
+        var node = root;
+        for (var i = 0; i < path.length(); i++) {
+            node = node.getOrAddChild(path.charAt(i));
+        }
+        return node;
+    }
+
+    @Override
+    public void handleRequest(final HttpServerExchange exchange) throws Exception {
+        val path = exchange.getRelativePath();
+        val length = path.length();
+        var node = root;
+        HttpHandler prefixHandler = null;
+        var prefixLength = 0;
+        var i = 0;
+        while (node != null) {
+            if (node.prefix != null && (i == length || path.charAt(i) == '/' || i > 0 && path.charAt(i - 1) == '/')) {
+                prefixHandler = node.prefix;
+                prefixLength = i;
+            }
+            if (i == length) {
+                break;
+            }
+            node = node.child(path.charAt(i++));
+        }
+
+        if (node != null && i == length && node.exact != null) {
+            node.exact.handleRequest(exchange);
+        } else if (prefixHandler != null) {
+            val matched = path.substring(0, prefixLength);
+            exchange.setRelativePath(path.substring(prefixLength));
+            val resolvedPath = exchange.getResolvedPath();
+            exchange.setResolvedPath(resolvedPath.isEmpty() ? matched : resolvedPath + matched);
+            prefixHandler.handleRequest(exchange);
+        } else {
+            defaultHandler.handleRequest(exchange);
+        }
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private HttpHandler exact;
+
+        private HttpHandler prefix;
+
+        private Node child(final char c) {
+            val currentKeys = keys;
+            for (var i = 0; i < currentKeys.length; i++) {
+                if (currentKeys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(final char c) {
+            var child = child(c);
+            if (child == null) {
+                child = new Node();
+                val newKeys = Arrays.copyOf(keys, keys.length + 1);
+                val newChildren = Arrays.copyOf(children, children.length + 1);
+                newKeys[keys.length] = c;
+                newChildren[children.length] = child;
+                children = newChildren;
+                keys = newKeys;
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import lombok.val;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.engine.DefaultSecurityLogic;
+import org.pac4j.core.exception.TechnicalException;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.undertow.handler.SecurityHandler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The declarative table of the secured routes, one route per line: the path, the handler name and the route options
+ * (<code>clients</code>, <code>authorizers</code>, <code>matchers</code>, <code>offload</code>, <code>ratelimit</code>...) as <code>key=value</code>
+ * pairs.
+ * The clients of each route are resolved once at startup.
+ *
+ * @since 6.0.0
+ */
+public class RouteTable {
+
+    public static final String DEFAULT_LOCATION = "routes.conf";
+
+    private final List<Route> routes;
+
+    public RouteTable(final List<Route> routes) {
+        this.routes = Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * Load the routes from a file if it exists, from the classpath otherwise.
+     */
+    public static RouteTable load(final String location) {
+        try (val in = open(location);
+             val reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            val routes = new ArrayList<Route>();
+            String line;
+            var lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                val tokens = line.split("\\s+");
+                if (tokens.length < 2) {
+                    throw new TechnicalException("Invalid route at line " + lineNumber + " of " + location + ": " + line);
+                }
+                val options = new HashMap<String, String>();
+                for (var i = 2; i < tokens.length; i++) {
+                    val separator = tokens[i].indexOf('=');
+                    if (separator <= 0) {
+                        throw new TechnicalException("Invalid option at line " + lineNumber + " of " + location + ": " + tokens[i]);
+                    }
+                    options.put(tokens[i].substring(0, separator), tokens[i].substring(separator + 1));
+                }
+                routes.add(new Route(tokens[0], tokens[1], options));
+            }
+            return new RouteTable(routes);
+        } catch (final IOException e) {
+            throw new TechnicalException(e);
+        }
+    }
+
+    private static InputStream open(final String location) throws IOException {
+        val path = Paths.get(location);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        val in = RouteTable.class.getClassLoader().getResourceAsStream(location);
+        if (in == null) {
+            throw new TechnicalException("Cannot find routes: " + location);
+        }
+        return in;
+    }
+
+    /**
+     * Compile the routes against the configuration and register them in the dispatcher,
+     * the routes with the <code>offload=true</code> option running on the offloader and the routes with
+     * the <code>ratelimit=true</code> option being rate limited first.
+     */
+    public void register(final RouteDispatcher dispatcher, final Config config, final Map<String, HttpHandler> handlers,
+                         final Offloader offloader, final RateLimiter rateLimiter) {
+        val clientFinder = new PrecompiledClientFinder();
+        for (val route : routes) {
+            val handler = handlers.get(route.getHandler());
+            if (handler == null) {
+                throw new TechnicalException("Unknown handler: " + route.getHandler() + " for route: " + route.getPath());
+            }
+            clientFinder.compile(config.getClients(), route.getClients());
+            val securityHandler = SecurityHandler.build(handler, config, route.getClients(), route.getAuthorizers(),
+                    route.getMatchers());
+            val routeHandler = route.isOffloaded() ? offloader.wrap(securityHandler, route.getClients()) : securityHandler;
+            dispatcher.addExactPath(route.getPath(), route.isRateLimited() ? rateLimiter.wrap(routeHandler) : routeHandler);
+        }
+
+        val securityLogic = new DefaultSecurityLogic();
+        securityLogic.setClientFinder(clientFinder);
+        config.setSecurityLogic(securityLogic);
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public Set<String> getClientNames() {
+        val names = new LinkedHashSet<String>();
+        for (val route : routes) {
+            if (route.getClients() != null) {
+                for (val name : route.getClients().split(Pac4jConstants.ELEMENT_SEPARATOR)) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    public static class Route {
+
+        private final String path;
+
+        private final String handler;
+
+        private final Map<String, String> options;
+
+        public Route(final String path, final String handler, final Map<String, String> options) {
+            this.path = path;
+            this.handler = handler;
+            this.options = Collections.unmodifiableMap(options);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getHandler() {
+            return handler;
+        }
+
+        public String getClients() {
+            return options.get("clients");
+        }
+
+        public String getAuthorizers() {
+            return options.get("authorizers");
+        }
+
+        public String getMatchers() {
+            return options.get("matchers");
+        }
+
+        public boolean isOffloaded() {
+            return Boolean.parseBoolean(options.get("offload"));
+        }
+
+        public boolean isRateLimited() {
+            return Boolean.parseBoolean(options.get("ratelimit"));
+        }
+
+        public String getOption(final String name) {
+            return options.get(name);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import lombok.val;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.context.FrameworkParameters;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.WebContextFactory;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.context.session.SessionStoreFactory;
+import org.pac4j.undertow.context.UndertowFrameworkParameters;
+import org.pac4j.undertow.context.UndertowSessionStore;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The web context and session store factories of the configuration, handing out the {@link RequestSecurityContext}
+ * of the exchange to all the pac4j handlers and logics of a request instead of new objects each time.
+ *
+ * @since 6.0.0
+ */
+public class SecurityContextCache implements WebContextFactory, SessionStoreFactory {
+
+    private final SessionStore sharedSessionStore;
+
+    private final LongAdder avoidedSessionReads = new LongAdder();
+
+    /**
+     * @param sharedSessionStore a stateless session store shared by all the requests,
+     *                           or <code>null</code> to use the server-side sessions
+     */
+    public SecurityContextCache(final SessionStore sharedSessionStore) {
+        this.sharedSessionStore = sharedSessionStore;
+    }
+
+    /**
+     * Resolve the context of the exchange from the cache of the configuration, if it has one.
+     */
+    public static RequestSecurityContext resolve(final Config config, final HttpServerExchange exchange) {
+        val factory = config.getSessionStoreFactory();
+        val cache = factory instanceof SecurityContextCache ? (SecurityContextCache) factory : new SecurityContextCache(null);
+        return cache.resolve(exchange);
+    }
+
+    public RequestSecurityContext resolve(final HttpServerExchange exchange) {
+        val existing = RequestSecurityContext.get(exchange);
+        if (existing != null) {
+            return existing;
+        }
+        val sessionStore = sharedSessionStore != null ? sharedSessionStore : new UndertowSessionStore(exchange);
+        return RequestSecurityContext.attach(exchange, new CachingSessionStore(sessionStore, avoidedSessionReads));
+    }
+
+    @Override
+    public WebContext newContext(final FrameworkParameters parameters) {
+        return resolve(((UndertowFrameworkParameters) parameters).getExchange()).getWebContext();
+    }
+
+    @Override
+    public SessionStore newSessionStore(final FrameworkParameters parameters) {
+        return resolve(((UndertowFrameworkParameters) parameters).getExchange()).getSessionStore();
+    }
+
+    public long getAvoidedSessionReads() {
+        return avoidedSessionReads.sum();
+    }
+}
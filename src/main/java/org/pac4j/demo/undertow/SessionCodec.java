@@ -0,0 +1,77 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serializes session attributes (mainly the pac4j user profiles) into a deflated binary form.
+ * Java serialization is kept rather than a dedicated profile format: the profile attributes are arbitrary values
+ * (dates, URIs, JWT claims, OAuth tokens...) and the sessions also hold pac4j states, all of them
+ * {@link java.io.Serializable} but without a common schema. A single object stream is used for all the attributes so
+ * that the class descriptors are only written once, and the deflater shrinks the repeated attribute names and values.
+ * Only the classes of the JDK and of the pac4j profiles and states can be deserialized.
+ *
+ * @since 6.0.0
+ */
+public final class SessionCodec {
+
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;maxrefs=100000;maxbytes=10000000;"
+                    + "java.lang.*;java.util.*;java.time.*;java.math.*;java.net.URI;java.net.URL;"
+                    + "org.pac4j.**;com.nimbusds.**;net.minidev.json.*;com.github.scribejava.**;!*");
+
+    private SessionCodec() {}
+
+    public static byte[] encode(final Map<String, Object> attributes) {
+        return encode(attributes, new byte[0]);
+    }
+
+    public static byte[] encode(final Map<String, Object> attributes, final byte[] header) {
+        try {
+            val bytes = new ByteArrayOutputStream(256);
+            bytes.write(header);
+            try (val out = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+                out.writeInt(attributes.size());
+                for (val entry : attributes.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeObject(entry.getValue());
+                }
+            }
+            return bytes.toByteArray();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Map<String, Object> decode(final byte[] data) {
+        return decode(data, 0);
+    }
+
+    public static Map<String, Object> decode(final byte[] data, final int offset) {
+        try (val in = new ObjectInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(data, offset, data.length - offset)))) {
+            in.setObjectInputFilter(FILTER);
+            val size = in.readInt();
+            val attributes = new LinkedHashMap<String, Object>(Math.max(16, size * 2));
+            for (var i = 0; i < size; i++) {
+                attributes.put(in.readUTF(), in.readObject());
+            }
+            return attributes;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.pac4j.demo.undertow;
+
+import java.util.Set;
+
+/**
+ * A storage tier for the serialized sessions of the {@link TieredSessionManager}.
+ *
+ * @since 6.0.0
+ */
+public interface SessionTier {
+
+    byte[] load(String id);
+
+    /**
+     * Load the first bytes of the session (at most <code>length</code>), or <code>null</code> if it is not stored.
+     */
+    byte[] load(String id, int length);
+
+    void store(String id, byte[] data);
+
+    /**
+     * Overwrite a part of the stored session in place, if it is stored.
+     */
+    void update(String id, int offset, byte[] data);
+
+    void remove(String id);
+
+    Set<String> ids();
+
+    int size();
+}
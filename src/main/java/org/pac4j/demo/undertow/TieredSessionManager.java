@@ -0,0 +1,539 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.session.SecureRandomSessionIdGenerator;
+import io.undertow.server.session.Session;
+import io.undertow.server.session.SessionConfig;
+import io.undertow.server.session.SessionIdGenerator;
+import io.undertow.server.session.SessionListener;
+import io.undertow.server.session.SessionListeners;
+import io.undertow.server.session.SessionManager;
+import io.undertow.server.session.SessionManagerStatistics;
+import io.undertow.util.AttachmentKey;
+import lombok.val;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A session manager storing the serialized sessions in a local tier (off-heap for example) backed by an optional remote
+ * tier shared by all the nodes, so that no sticky session is required.
+ * Writes go through both tiers, reads hit the local tier first and fall back to the remote one (the session being
+ * then promoted to the local tier). The session count and byte limits are enforced by the local tier, and the expired
+ * sessions are swept from it every minute once the manager is started.
+ * A session is read from its fixed-size header only (times and timeout): the attributes are decoded on their first
+ * access, so that the requests which do not use them (assets, metrics...) never deserialize them.
+ * The requests of the node using the same session share one live instance (so they see each other's writes instead of
+ * overwriting them). At the end of each request (the {@link io.undertow.server.session.SessionAttachmentHandler} calls
+ * {@link Session#requestDone(HttpServerExchange)}), a session with changed attributes is encoded and stored once,
+ * otherwise only its header is updated in place, at most once per minute.
+ *
+ * @since 6.0.0
+ */
+public class TieredSessionManager implements SessionManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredSessionManager.class);
+
+    private static final int HEADER_SIZE = 20;
+
+    private static final long TOUCH_INTERVAL_MILLIS = 60_000;
+
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final AttachmentKey<TieredSession> sessionKey = AttachmentKey.create(TieredSession.class);
+
+    private final SessionListeners listeners = new SessionListeners();
+
+    private final SessionIdGenerator idGenerator = new SecureRandomSessionIdGenerator();
+
+    // the sessions in use by the requests of the node
+    private final Map<String, TieredSession> live = new ConcurrentHashMap<>();
+
+    private final String deploymentName;
+
+    private final SessionTier local;
+
+    private final SessionTier remote;
+
+    private final LongSupplier clock;
+
+    private volatile int defaultSessionTimeout = 30 * 60;
+
+    private ScheduledExecutorService sweeper;
+
+    public TieredSessionManager(final String deploymentName, final SessionTier local, final SessionTier remote) {
+        this(deploymentName, local, remote, System::currentTimeMillis);
+    }
+
+    TieredSessionManager(final String deploymentName, final SessionTier local, final SessionTier remote,
+                         final LongSupplier clock) {
+        this.deploymentName = deploymentName;
+        this.local = local;
+        this.remote = remote;
+        this.clock = clock;
+    }
+
+    @Override
+    public String getDeploymentName() {
+        return deploymentName;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                val thread = new Thread(runnable, "session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweepSafely, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    @Override
+    public Session createSession(final HttpServerExchange exchange, final SessionConfig config) {
+        val now = clock.getAsLong();
+        val session = new TieredSession(idGenerator.createSessionId(), now, now, defaultSessionTimeout,
+                new LinkedHashMap<>(), config);
+        session.users = 1;
+        session.dirty = true;
+        live.put(session.id, session);
+        config.setSessionId(exchange, session.id);
+        exchange.putAttachment(sessionKey, session);
+        listeners.sessionCreated(session, exchange);
+        return session;
+    }
+
+    @Override
+    public Session getSession(final HttpServerExchange exchange, final SessionConfig config) {
+        if (exchange != null) {
+            val attached = exchange.getAttachment(sessionKey);
+            if (attached != null && !attached.invalid) {
+                return attached;
+            }
+        }
+        val id = config.findSessionId(exchange);
+        if (id == null) {
+            return null;
+        }
+        if (exchange == null) {
+            return getSession(id);
+        }
+        val session = acquire(id, config, exchange);
+        if (session != null) {
+            exchange.putAttachment(sessionKey, session);
+        }
+        return session;
+    }
+
+    @Override
+    public Session getSession(final String sessionId) {
+        val session = live.get(sessionId);
+        if (session != null) {
+            return session;
+        }
+        val loaded = load(sessionId, null, null);
+        if (loaded != null) {
+            // not tied to a request, so written on each change
+            loaded.detached = true;
+        }
+        return loaded;
+    }
+
+    private TieredSession acquire(final String id, final SessionConfig config, final HttpServerExchange exchange) {
+        val session = live.computeIfPresent(id, (key, current) -> current.retain());
+        if (session != null) {
+            session.lastAccessedTime = clock.getAsLong();
+            return session;
+        }
+        val loaded = load(id, config, exchange);
+        if (loaded == null) {
+            return null;
+        }
+        // a concurrent request may have loaded it first: share its instance
+        return live.merge(id, loaded.retain(), (current, ignored) -> current.retain());
+    }
+
+    private void release(final TieredSession session) {
+        live.computeIfPresent(session.id, (key, current) -> current != session || --current.users > 0 ? current : null);
+    }
+
+    // only the header is read, the attributes are decoded on their first access
+    private TieredSession load(final String id, final SessionConfig config, final HttpServerExchange exchange) {
+        var data = local.load(id, HEADER_SIZE);
+        if (data == null && remote != null) {
+            val remoteData = remote.load(id);
+            if (remoteData != null) {
+                local.store(id, remoteData);
+                data = Arrays.copyOf(remoteData, HEADER_SIZE);
+            }
+        }
+        if (data == null || data.length < HEADER_SIZE) {
+            return null;
+        }
+
+        val header = ByteBuffer.wrap(data, 0, HEADER_SIZE);
+        val creationTime = header.getLong();
+        val lastAccessedTime = header.getLong();
+        val maxInactiveInterval = header.getInt();
+        val now = clock.getAsLong();
+        if (isExpired(lastAccessedTime, maxInactiveInterval, now)) {
+            expire(new TieredSession(id, creationTime, lastAccessedTime, maxInactiveInterval, null, config), exchange);
+            return null;
+        }
+
+        val session = new TieredSession(id, creationTime, now, maxInactiveInterval, null, config);
+        session.savedAccessTime = lastAccessedTime;
+        return session;
+    }
+
+    private void expire(final TieredSession session, final HttpServerExchange exchange) {
+        session.invalid = true;
+        // the listeners can still read the attributes
+        listeners.sessionDestroyed(session, exchange, SessionListener.SessionDestroyedReason.TIMEOUT);
+        delete(session.id);
+    }
+
+    private static boolean isExpired(final long lastAccessedTime, final int maxInactiveInterval, final long now) {
+        return maxInactiveInterval > 0 && now - lastAccessedTime > maxInactiveInterval * 1000L;
+    }
+
+    /**
+     * Remove the expired sessions of the local tier which are not in use, and return their number.
+     */
+    int sweep() {
+        val now = clock.getAsLong();
+        var count = 0;
+        for (val id : local.ids()) {
+            if (live.containsKey(id)) {
+                continue;
+            }
+            val data = local.load(id, HEADER_SIZE);
+            if (data == null || data.length < HEADER_SIZE) {
+                continue;
+            }
+            val header = ByteBuffer.wrap(data);
+            val creationTime = header.getLong();
+            val lastAccessedTime = header.getLong();
+            val maxInactiveInterval = header.getInt();
+            if (isExpired(lastAccessedTime, maxInactiveInterval, now)) {
+                expire(new TieredSession(id, creationTime, lastAccessedTime, maxInactiveInterval, null, null), null);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void sweepSafely() {
+        try {
+            val count = sweep();
+            if (count > 0) {
+                LOGGER.debug("Swept {} expired sessions", count);
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Cannot sweep the expired sessions", e);
+        }
+    }
+
+    private byte[] loadData(final String id) {
+        val data = local.load(id);
+        if (data != null || remote == null) {
+            return data;
+        }
+        return remote.load(id);
+    }
+
+    private void save(final TieredSession session) {
+        // serialized so that an older snapshot never overwrites a newer one in the tiers
+        synchronized (session.saveLock) {
+            final byte[] header;
+            byte[] data = null;
+            synchronized (session) {
+                session.headerChanged = false;
+                session.savedAccessTime = session.lastAccessedTime;
+                header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putLong(session.creationTime)
+                        .putLong(session.lastAccessedTime)
+                        .putInt(session.maxInactiveInterval)
+                        .array();
+                if (session.dirty) {
+                    session.dirty = false;
+                    data = SessionCodec.encode(session.attributes, header);
+                }
+            }
+            if (data != null) {
+                local.store(session.id, data);
+                if (remote != null) {
+                    remote.store(session.id, data);
+                }
+            } else {
+                // unchanged attributes: only the times and the timeout are rewritten
+                local.update(session.id, 0, header);
+                if (remote != null) {
+                    remote.update(session.id, 0, header);
+                }
+            }
+        }
+    }
+
+    private void delete(final String id) {
+        local.remove(id);
+        if (remote != null) {
+            remote.remove(id);
+        }
+    }
+
+    @Override
+    public void registerSessionListener(final SessionListener listener) {
+        listeners.addSessionListener(listener);
+    }
+
+    @Override
+    public void removeSessionListener(final SessionListener listener) {
+        listeners.removeSessionListener(listener);
+    }
+
+    @Override
+    public void setDefaultSessionTimeout(final int timeout) {
+        this.defaultSessionTimeout = timeout;
+    }
+
+    @Override
+    public Set<String> getTransientSessions() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Set<String> getActiveSessions() {
+        return local.ids();
+    }
+
+    @Override
+    public Set<String> getAllSessions() {
+        return remote != null ? remote.ids() : local.ids();
+    }
+
+    @Override
+    public SessionManagerStatistics getStatistics() {
+        return null;
+    }
+
+    private final class TieredSession implements Session {
+
+        private final long creationTime;
+
+        // decoded on the first access
+        private Map<String, Object> attributes;
+
+        private final SessionConfig config;
+
+        private final Object saveLock = new Object();
+
+        // the requests using the live session, only updated in the compute methods of the live map
+        private int users;
+
+        private volatile boolean detached;
+
+        // the attributes changed
+        private volatile boolean dirty;
+
+        // the timeout changed
+        private volatile boolean headerChanged;
+
+        private volatile long savedAccessTime;
+
+        private volatile String id;
+
+        private volatile long lastAccessedTime;
+
+        private volatile int maxInactiveInterval;
+
+        private volatile boolean invalid;
+
+        private TieredSession(final String id, final long creationTime, final long lastAccessedTime,
+                              final int maxInactiveInterval, final Map<String, Object> attributes,
+                              final SessionConfig config) {
+            this.id = id;
+            this.creationTime = creationTime;
+            this.lastAccessedTime = lastAccessedTime;
+            this.maxInactiveInterval = maxInactiveInterval;
+            this.attributes = attributes;
+            this.config = config;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        private TieredSession retain() {
+            users++;
+            return this;
+        }
+
+        private synchronized Map<String, Object> attributes() {
+            if (attributes == null) {
+                val data = loadData(id);
+                attributes = new LinkedHashMap<>();
+                if (data != null) {
+                    try {
+                        attributes = SessionCodec.decode(data, HEADER_SIZE);
+                    } catch (final IllegalStateException | UncheckedIOException e) {
+                        LOGGER.warn("Cannot decode the attributes of a session, dropping them: {}", e.getMessage());
+                    }
+                }
+            }
+            return attributes;
+        }
+
+        private void changed() {
+            if (detached) {
+                save(this);
+            }
+        }
+
+        @Override
+        public void requestDone(final HttpServerExchange exchange) {
+            if (exchange.getAttachment(sessionKey) != this) {
+                return;
+            }
+            exchange.removeAttachment(sessionKey);
+            if (!invalid) {
+                lastAccessedTime = clock.getAsLong();
+                if (dirty || headerChanged || lastAccessedTime - savedAccessTime > TOUCH_INTERVAL_MILLIS) {
+                    save(this);
+                }
+            }
+            release(this);
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(final int interval) {
+            this.maxInactiveInterval = interval;
+            headerChanged = true;
+            changed();
+        }
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return maxInactiveInterval;
+        }
+
+        @Override
+        public synchronized Object getAttribute(final String name) {
+            return attributes().get(name);
+        }
+
+        @Override
+        public synchronized Set<String> getAttributeNames() {
+            return new HashSet<>(attributes().keySet());
+        }
+
+        @Override
+        public Object setAttribute(final String name, final Object value) {
+            if (value == null) {
+                return removeAttribute(name);
+            }
+            final Object previous;
+            synchronized (this) {
+                previous = attributes().put(name, value);
+                dirty = true;
+            }
+            changed();
+            if (previous == null) {
+                listeners.attributeAdded(this, name, value);
+            } else {
+                listeners.attributeUpdated(this, name, value, previous);
+            }
+            return previous;
+        }
+
+        @Override
+        public Object removeAttribute(final String name) {
+            final Object previous;
+            synchronized (this) {
+                previous = attributes().remove(name);
+                if (previous != null) {
+                    dirty = true;
+                }
+            }
+            if (previous != null) {
+                changed();
+                listeners.attributeRemoved(this, name, previous);
+            }
+            return previous;
+        }
+
+        @Override
+        public void invalidate(final HttpServerExchange exchange) {
+            invalid = true;
+            live.remove(id, this);
+            // the listeners can still read the attributes
+            listeners.sessionDestroyed(this, exchange, SessionListener.SessionDestroyedReason.INVALIDATED);
+            delete(id);
+            if (exchange != null) {
+                exchange.removeAttachment(sessionKey);
+                if (config != null) {
+                    config.clearSession(exchange, id);
+                }
+            }
+        }
+
+        @Override
+        public SessionManager getSessionManager() {
+            return TieredSessionManager.this;
+        }
+
+        @Override
+        public String changeSessionId(final HttpServerExchange exchange, final SessionConfig config) {
+            val oldId = id;
+            // the whole session is written under its new id
+            synchronized (this) {
+                attributes();
+                dirty = true;
+            }
+            delete(oldId);
+            live.remove(oldId, this);
+            id = idGenerator.createSessionId();
+            if (!detached) {
+                live.put(id, this);
+            }
+            save(this);
+            config.setSessionId(exchange, id);
+            listeners.sessionIdChanged(this, oldId);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link AssetPipeline}.
+ *
+ * @since 6.0.0
+ */
+public final class AssetPipelineTest {
+
+    private static boolean acceptsGzip(final String... acceptEncoding) {
+        val exchange = new HttpServerExchange(null);
+        for (val value : acceptEncoding) {
+            exchange.getRequestHeaders().add(Headers.ACCEPT_ENCODING, value);
+        }
+        return AssetPipeline.acceptsGzip(exchange);
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(acceptsGzip("gzip"));
+        assertTrue(acceptsGzip("deflate, gzip;q=0.5, br"));
+        assertTrue(acceptsGzip("GZIP"));
+        assertTrue(acceptsGzip("x-gzip"));
+        assertTrue(acceptsGzip("br", "gzip"));
+        assertTrue(acceptsGzip("*"));
+        assertTrue(acceptsGzip("*;q=0, gzip"));
+    }
+
+    @Test
+    public void testRejectsGzip() {
+        assertFalse(acceptsGzip());
+        assertFalse(acceptsGzip("identity"));
+        assertFalse(acceptsGzip("gzip;q=0"));
+        assertFalse(acceptsGzip("gzip; q=0.000, br"));
+        assertFalse(acceptsGzip("x-gzip-foo, deflate"));
+        assertFalse(acceptsGzip("gzipped"));
+        assertFalse(acceptsGzip("gzip;q=0, *"));
+        assertFalse(acceptsGzip("*;q=0"));
+    }
+}
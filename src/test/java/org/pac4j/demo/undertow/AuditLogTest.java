@@ -0,0 +1,82 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link AuditLog}.
+ *
+ * @since 6.0.0
+ */
+public final class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static HttpServerExchange exchange() {
+        val exchange = new HttpServerExchange(null);
+        exchange.setSourceAddress(new InetSocketAddress("127.0.0.1", 12345));
+        exchange.setRequestPath("/callback");
+        return exchange;
+    }
+
+    private static long lines(final Path file) throws IOException {
+        try (val lines = Files.lines(file)) {
+            return lines.count();
+        }
+    }
+
+    private static void awaitLines(final Path file, final long expected) throws Exception {
+        val deadline = System.currentTimeMillis() + 5_000;
+        while (lines(file) < expected) {
+            assertTrue(System.currentTimeMillis() < deadline, "the writer did not write " + expected + " events");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testParkedWriterWokenUpByEachEvent() throws Exception {
+        val file = directory.resolve("audit.log");
+        val auditLog = new AuditLog(file, 16, 1024 * 1024, 1);
+        try {
+            // the writer parks between the events: no event must wait for the next one to be written
+            for (var i = 1; i <= 200; i++) {
+                auditLog.record(AuditLog.LOGIN_SUCCESS, exchange(), "FormClient", "user" + i);
+                awaitLines(file, i);
+            }
+        } finally {
+            auditLog.shutdown();
+        }
+        val lines = Files.readAllLines(file);
+        assertEquals(200, lines.size());
+        assertTrue(lines.get(199).contains("\"event\":\"login_success\",\"client\":\"FormClient\",\"user\":\"user200\","
+                + "\"ip\":\"127.0.0.1\",\"path\":\"/callback\",\"status\":200}"));
+    }
+
+    @Test
+    public void testEventsDroppedWhenFull() throws Exception {
+        val file = directory.resolve("audit.log");
+        val auditLog = new AuditLog(file, 4, 1024 * 1024, 1);
+        val exchange = exchange();
+        for (var i = 0; i < 10_000; i++) {
+            auditLog.record(AuditLog.UNAUTHORIZED, exchange, null, null);
+        }
+        auditLog.shutdown();
+
+        val metrics = new StringBuilder();
+        auditLog.writeMetrics(metrics);
+        val written = lines(file);
+        assertTrue(metrics.toString().contains("pac4j_demo_audit_events_written_total " + written + "\n"));
+        assertTrue(metrics.toString().contains("pac4j_demo_audit_events_dropped_total " + (10_000 - written) + "\n"));
+    }
+}
@@ -0,0 +1,167 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.Pac4jConstants;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link AuthorizationCache}.
+ *
+ * @since 6.0.0
+ */
+public final class AuthorizationCacheTest {
+
+    private final AuthorizationCache cache = new AuthorizationCache(100, 60_000);
+
+    private static UserProfile profile(final String id, final String... roles) {
+        val profile = new CommonProfile();
+        profile.setId(id);
+        profile.setClientName("FormClient");
+        for (val role : roles) {
+            profile.addRole(role);
+        }
+        return profile;
+    }
+
+    private void put(final String authorizer, final UserProfile profile, final boolean authorized) {
+        cache.put(AuthorizationCache.key(authorizer, List.of(profile)), List.of(profile), authorized);
+    }
+
+    private Boolean get(final String authorizer, final UserProfile profile) {
+        return cache.get(AuthorizationCache.key(authorizer, List.of(profile)));
+    }
+
+    @Test
+    public void testKeyOnRoleNames() {
+        // "Aa" and "BB" have the same hash code
+        assertNotEquals(AuthorizationCache.key("admin", List.of(profile("jle", "Aa"))),
+                AuthorizationCache.key("admin", List.of(profile("jle", "BB"))));
+        assertNotEquals(AuthorizationCache.key("admin", List.of(profile("jle", "a,b"))),
+                AuthorizationCache.key("admin", List.of(profile("jle", "a", "b"))));
+        assertEquals(AuthorizationCache.key("admin", List.of(profile("jle", "ROLE_USER", "ROLE_ADMIN"))),
+                AuthorizationCache.key("admin", List.of(profile("jle", "ROLE_ADMIN", "ROLE_USER"))));
+        assertNotEquals(AuthorizationCache.key("admin", List.of(profile("jle"))),
+                AuthorizationCache.key("custom", List.of(profile("jle"))));
+    }
+
+    @Test
+    public void testRoleChangeMisses() {
+        put("admin", profile("jle", "ROLE_ADMIN"), true);
+        assertTrue(get("admin", profile("jle", "ROLE_ADMIN")));
+        assertNull(get("admin", profile("jle", "ROLE_USER")));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidateProfileDecisions() {
+        val jle = profile("jle", "ROLE_ADMIN");
+        val other = profile("other");
+        put("admin", jle, true);
+        put("custom", jle, false);
+        put("admin", other, false);
+
+        cache.invalidate(profile("jle"));
+        assertNull(get("admin", jle));
+        assertNull(get("custom", jle));
+        assertFalse(get("admin", other));
+    }
+
+    @Test
+    public void testEvictedDecisionUnindexed() {
+        val small = new AuthorizationCache(1, 60_000);
+        val jle = profile("jle");
+        val other = profile("other");
+        small.put(AuthorizationCache.key("admin", List.of(jle)), List.of(jle), true);
+        small.put(AuthorizationCache.key("admin", List.of(other)), List.of(other), true);
+        assertNull(small.get(AuthorizationCache.key("admin", List.of(jle))));
+
+        // the logout of the evicted profile leaves the other decisions
+        small.invalidate(jle);
+        assertTrue(small.get(AuthorizationCache.key("admin", List.of(other))));
+        small.invalidate(other);
+        assertNull(small.get(AuthorizationCache.key("admin", List.of(other))));
+    }
+
+    @Test
+    public void testInvalidateOnLogout() throws Exception {
+        val jle = profile("jle", "ROLE_ADMIN");
+        val other = profile("other");
+        put("admin", jle, true);
+        put("admin", other, true);
+
+        val sessionStore = new MapSessionStore();
+        val profiles = new LinkedHashMap<String, UserProfile>();
+        profiles.put(jle.getClientName(), jle);
+        sessionStore.set(null, Pac4jConstants.USER_PROFILES, profiles);
+        val securityContextCache = new SecurityContextCache(sessionStore);
+        val config = new Config();
+        config.setWebContextFactory(securityContextCache);
+        config.setSessionStoreFactory(securityContextCache);
+
+        val loggedOut = new boolean[1];
+        cache.invalidateOnLogout(exchange -> loggedOut[0] = true, config).handleRequest(new HttpServerExchange(null));
+        assertTrue(loggedOut[0]);
+        assertNull(get("admin", jle));
+        assertTrue(get("admin", other));
+    }
+
+    private static final class MapSessionStore implements SessionStore {
+
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Optional<String> getSessionId(final WebContext context, final boolean createSession) {
+            return Optional.of("id");
+        }
+
+        @Override
+        public Optional<Object> get(final WebContext context, final String key) {
+            return Optional.ofNullable(values.get(key));
+        }
+
+        @Override
+        public void set(final WebContext context, final String key, final Object value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public boolean destroySession(final WebContext context) {
+            values.clear();
+            return true;
+        }
+
+        @Override
+        public Optional<Object> getTrackableSession(final WebContext context) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<SessionStore> buildFromTrackableSession(final WebContext context, final Object trackableSession) {
+            return Optional.empty();
+        }
+
+        @Override
+        public boolean renewSession(final WebContext context) {
+            return false;
+        }
+    }
+}
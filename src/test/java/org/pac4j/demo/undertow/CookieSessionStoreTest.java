@@ -0,0 +1,143 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.pac4j.core.exception.TechnicalException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests {@link CookieSessionStore}.
+ *
+ * @since 6.0.0
+ */
+public final class CookieSessionStoreTest {
+
+    private static final String OLD_SECRET = "an-old-secret-of-at-least-32-characters";
+
+    private static final String NEW_SECRET = "a-new-secret-of-at-least-32-characters!";
+
+    private static final long MAX_AGE = 1_800_000;
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static CookieSessionStore store(final String... secrets) {
+        return new CookieSessionStore("pac4jSession", 3800, MAX_AGE, true, "Lax", List.of(secrets));
+    }
+
+    private static Map<String, Object> attributes() {
+        val attributes = new LinkedHashMap<String, Object>();
+        attributes.put("pac4jCookieSessionId", "id");
+        attributes.put("key", "value");
+        return attributes;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        val store = store(NEW_SECRET);
+        val payload = store.decrypt(store.encrypt(attributes(), NOW), NOW + 1000);
+        assertNotNull(payload);
+        assertEquals(NOW, payload.getIssuedAt());
+        assertEquals(attributes(), payload.getAttributes());
+    }
+
+    @Test
+    public void testKeyRotation() {
+        val value = store(OLD_SECRET).encrypt(attributes(), NOW);
+        assertEquals(attributes(), store(NEW_SECRET, OLD_SECRET).decrypt(value, NOW).getAttributes());
+        assertNull(store(NEW_SECRET).decrypt(value, NOW));
+
+        val rotated = store(NEW_SECRET, OLD_SECRET).encrypt(attributes(), NOW);
+        assertEquals(attributes(), store(NEW_SECRET).decrypt(rotated, NOW).getAttributes());
+    }
+
+    @Test
+    public void testTamperedCookie() {
+        val store = store(NEW_SECRET);
+        val data = Base64.getUrlDecoder().decode(store.encrypt(attributes(), NOW));
+        for (val index : new int[] { 0, 1, data.length / 2, data.length - 1 }) {
+            val tampered = data.clone();
+            tampered[index] ^= 1;
+            assertNull(store.decrypt(Base64.getUrlEncoder().withoutPadding().encodeToString(tampered), NOW));
+        }
+        assertNull(store.decrypt("not base64!", NOW));
+        assertNull(store.decrypt("AAAA", NOW));
+    }
+
+    @Test
+    public void testExpiredCookie() {
+        val store = store(NEW_SECRET);
+        val value = store.encrypt(attributes(), NOW);
+        assertNotNull(store.decrypt(value, NOW + MAX_AGE));
+        assertNull(store.decrypt(value, NOW + MAX_AGE + 1));
+        // issued in the future, beyond the clock skew
+        assertNull(store.decrypt(value, NOW - 120_000));
+    }
+
+    @Test
+    public void testClassNotAllowed() {
+        val store = store(NEW_SECRET);
+        val attributes = attributes();
+        attributes.put("file", new File("/etc/passwd"));
+        assertNull(store.decrypt(store.encrypt(attributes, NOW), NOW));
+    }
+
+    @Test
+    public void testUnknownClass() throws Exception {
+        val attributes = attributes();
+        attributes.put("known", new Known());
+        byte[] stream;
+        try (val in = new InflaterInputStream(new ByteArrayInputStream(SessionCodec.encode(attributes)))) {
+            stream = in.readAllBytes();
+        }
+        // a class removed since the cookie was issued
+        replace(stream, Known.class.getName(), CookieSessionStoreTest.class.getName() + "$Kno_n");
+
+        val plain = new ByteArrayOutputStream();
+        plain.write(ByteBuffer.allocate(8).putLong(NOW).array());
+        try (val out = new DeflaterOutputStream(plain)) {
+            out.write(stream);
+        }
+        val store = store(NEW_SECRET);
+        assertNull(store.decrypt(store.encrypt(plain.toByteArray()), NOW));
+    }
+
+    private static void replace(final byte[] data, final String from, final String to) {
+        val source = from.getBytes(StandardCharsets.UTF_8);
+        val target = to.getBytes(StandardCharsets.UTF_8);
+        for (var i = 0; i + source.length <= data.length; i++) {
+            if (Arrays.equals(data, i, i + source.length, source, 0, source.length)) {
+                System.arraycopy(target, 0, data, i, target.length);
+                return;
+            }
+        }
+        throw new IllegalArgumentException(from);
+    }
+
+    @Test
+    public void testShortSecret() {
+        assertThrows(TechnicalException.class, () -> store("too short"));
+    }
+
+    private static final class Known implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,101 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests {@link ExpiringLruCache}.
+ *
+ * @since 6.0.0
+ */
+public final class ExpiringLruCacheTest {
+
+    private static final long LATER = Long.MAX_VALUE;
+
+    private final List<String> removed = new ArrayList<>();
+
+    private final ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2,
+            (key, value) -> removed.add(key + "=" + value));
+
+    @Test
+    public void testHitsAndMisses() {
+        assertNull(cache.get("a"));
+        cache.put("a", "1", LATER);
+        assertEquals("1", cache.get("a"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        cache.put("a", "1", System.currentTimeMillis() + 20);
+        cache.put("b", "2", LATER);
+        Thread.sleep(40);
+        assertNull(cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertEquals(List.of("a=1"), removed);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testAlreadyExpiredNotStored() {
+        cache.put("a", "1", System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(List.of(), removed);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        cache.put("a", "1", LATER);
+        cache.put("b", "2", LATER);
+        // a is used after b: b is the eldest
+        cache.get("a");
+        cache.put("c", "3", LATER);
+        assertEquals(List.of("b=2"), removed);
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testReplaceDoesNotEvict() {
+        cache.put("a", "1", LATER);
+        cache.put("a", "2", LATER);
+        cache.put("b", "3", LATER);
+        assertEquals(List.of(), removed);
+        assertEquals("2", cache.get("a"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put("a", "1", LATER);
+        cache.put("b", "2", LATER);
+        cache.invalidate("a");
+        cache.invalidate("missing");
+        assertEquals(List.of("a=1"), removed);
+        assertNull(cache.get("a"));
+
+        // invalidateAll does not notify the listener
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(List.of("a=1"), removed);
+    }
+
+    @Test
+    public void testDefaultListener() {
+        val noListener = new ExpiringLruCache<String, String>(1);
+        noListener.put("a", "1", LATER);
+        noListener.put("b", "2", LATER);
+        assertNull(noListener.get("a"));
+        assertEquals("2", noListener.get("b"));
+    }
+}
@@ -0,0 +1,114 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link MpscRingBuffer}.
+ *
+ * @since 6.0.0
+ */
+public final class MpscRingBufferTest {
+
+    @Test
+    public void testFifo() {
+        val buffer = new MpscRingBuffer<Integer>(4);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        // many times the capacity, to wrap around
+        for (var i = 0; i < 100; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(-i));
+            assertFalse(buffer.isEmpty());
+            assertEquals(i, buffer.poll());
+            assertEquals(-i, buffer.poll());
+            assertTrue(buffer.isEmpty());
+        }
+        assertEquals(0, buffer.getDropped());
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        val buffer = new MpscRingBuffer<Integer>(4);
+        for (var i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        assertEquals(2, buffer.getDropped());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(6));
+        for (val expected : new int[] { 1, 2, 3, 6 }) {
+            assertEquals(expected, buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void testCapacityRoundedToPowerOfTwo() {
+        val buffer = new MpscRingBuffer<Integer>(5);
+        var offered = 0;
+        while (buffer.offer(offered)) {
+            offered++;
+        }
+        assertEquals(8, offered);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        val buffer = new MpscRingBuffer<Long>(1024);
+        val producers = 4;
+        val perProducer = 50_000;
+        val start = new CountDownLatch(1);
+        val threads = new ArrayList<Thread>();
+        for (var p = 0; p < producers; p++) {
+            val producer = p;
+            val thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (var i = 0; i < perProducer; i++) {
+                    buffer.offer((long) producer * perProducer + i);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        // every element is either received exactly once, in the order of its producer, or dropped
+        val last = new long[producers];
+        Arrays.fill(last, -1);
+        var received = 0L;
+        while (received + buffer.getDropped() < (long) producers * perProducer) {
+            val element = buffer.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            val producer = (int) (element / perProducer);
+            val index = element % perProducer;
+            assertTrue(index > last[producer]);
+            last[producer] = index;
+            received++;
+        }
+        for (val thread : threads) {
+            thread.join();
+        }
+        assertNull(buffer.poll());
+        assertEquals((long) producers * perProducer, received + buffer.getDropped());
+    }
+}
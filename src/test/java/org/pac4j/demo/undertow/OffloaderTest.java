@@ -0,0 +1,144 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
+import io.undertow.util.Headers;
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link Offloader}.
+ *
+ * @since 6.0.0
+ */
+public final class OffloaderTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private Offloader offloader;
+
+    private Undertow server;
+
+    private String start(final Offloader offloader, final HttpHandler handler, final String clients) {
+        this.offloader = offloader;
+        server = Undertow.builder().addHttpListener(0, "localhost")
+                .setHandler(offloader.wrap(handler, clients)).build();
+        server.start();
+        return "http://localhost:" + ((InetSocketAddress) server.getListenerInfo().get(0).getAddress()).getPort();
+    }
+
+    @AfterEach
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+        if (offloader != null) {
+            offloader.shutdown();
+        }
+    }
+
+    private CompletableFuture<HttpResponse<Void>> send(final String url) {
+        return client.sendAsync(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static void await(final BooleanSupplier condition) throws InterruptedException {
+        val deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timeout");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        val running = new AtomicInteger();
+        val maxRunning = new AtomicInteger();
+        val url = start(new Offloader(2, 100), exchange -> {
+            assertFalse(exchange.isInIoThread());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+        }, "FormClient");
+
+        val responses = new ArrayList<CompletableFuture<HttpResponse<Void>>>();
+        for (var i = 0; i < 10; i++) {
+            responses.add(send(url + "/"));
+        }
+        for (val response : responses) {
+            assertEquals(200, response.get(5, TimeUnit.SECONDS).statusCode());
+        }
+        assertTrue(maxRunning.get() <= 2);
+
+        val queue = offloader.getQueues().get("FormClient");
+        assertEquals(10, queue.getCount());
+        assertEquals(2, queue.getAvailablePermits());
+        assertEquals(0, queue.getQueued());
+        assertTrue(queue.getMaxQueueNanos() > 0);
+        assertTrue(queue.getTotalQueueNanos() >= queue.getMaxQueueNanos());
+    }
+
+    @Test
+    public void testFullQueueRejected() throws Exception {
+        val entered = new CountDownLatch(1);
+        val release = new CountDownLatch(1);
+        val url = start(new Offloader(1, 1), exchange -> {
+            if (exchange.getQueryParameters().containsKey("block")) {
+                entered.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+        }, "DirectBasicAuthClient,ParameterClient");
+
+        val first = send(url + "/?block=true");
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        val second = send(url + "/");
+        val queue = offloader.getQueues().get("DirectBasicAuthClient");
+        await(() -> queue.getQueued() == 1);
+
+        val rejected = client.send(HttpRequest.newBuilder(URI.create(url + "/")).build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertEquals(503, rejected.statusCode());
+        assertEquals("1", rejected.headers().firstValue(Headers.RETRY_AFTER_STRING).orElse(null));
+        assertEquals(1, queue.getRejected());
+
+        // the other client of the route has its own queue
+        assertEquals(200, send(url + "/?client_name=ParameterClient").get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, offloader.getQueues().get("ParameterClient").getCount());
+
+        release.countDown();
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(2, queue.getCount());
+        assertEquals(0, queue.getQueued());
+
+        val metrics = new StringBuilder();
+        offloader.writeMetrics(metrics);
+        assertTrue(metrics.toString().contains("pac4j_demo_offload_total{client=\"DirectBasicAuthClient\"} 2\n"));
+        assertTrue(metrics.toString().contains("pac4j_demo_offload_rejected_total{client=\"DirectBasicAuthClient\"} 1\n"));
+        assertTrue(metrics.toString().contains("pac4j_demo_offload_total{client=\"ParameterClient\"} 1\n"));
+    }
+
+    @Test
+    public void testUnknownClientUsesFirstClient() throws Exception {
+        val url = start(new Offloader(1, 1), exchange -> { }, "DirectBasicAuthClient,ParameterClient");
+        assertEquals(200, send(url + "/?client_name=Unknown").get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, offloader.getQueues().get("DirectBasicAuthClient").getCount());
+        assertEquals(1, offloader.getQueues().size());
+    }
+}
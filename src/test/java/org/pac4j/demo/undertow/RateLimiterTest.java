@@ -0,0 +1,113 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.Undertow;
+import io.undertow.util.Headers;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RateLimiter}.
+ *
+ * @since 6.0.0
+ */
+public final class RateLimiterTest {
+
+    private static final long WINDOW = 1000;
+
+    @Test
+    public void testEstimateNeverUndercounts() {
+        val limiter = new RateLimiter(WINDOW, 1, 1);
+        val now = 10 * WINDOW;
+        // far more keys than a row of the sketch can hold without collisions
+        for (var i = 0; i < 50_000; i++) {
+            for (var n = 0; n <= i % 5; n++) {
+                limiter.recordFailure("key" + i, now);
+            }
+        }
+        for (var i = 0; i < 50_000; i++) {
+            assertTrue(limiter.isLimited("key" + i, i % 5 + 1, now));
+        }
+    }
+
+    @Test
+    public void testUnknownKeyNotLimited() {
+        val limiter = new RateLimiter(WINDOW, 1, 1);
+        limiter.recordFailure("ip:10.0.0.1", 10 * WINDOW);
+        assertTrue(limiter.isLimited("ip:10.0.0.1", 1, 10 * WINDOW));
+        assertFalse(limiter.isLimited("ip:10.0.0.2", 1, 10 * WINDOW));
+    }
+
+    @Test
+    public void testSlidingWindowWeighting() {
+        val limiter = new RateLimiter(WINDOW, 1, 1);
+        for (var i = 0; i < 10; i++) {
+            limiter.recordFailure("key", 10 * WINDOW);
+        }
+        assertTrue(limiter.isLimited("key", 10, 11 * WINDOW - 1));
+        assertFalse(limiter.isLimited("key", 11, 11 * WINDOW - 1));
+
+        // a quarter into the next window: three quarters of the previous window are still covered
+        val now = 11 * WINDOW + WINDOW / 4;
+        assertTrue(limiter.isLimited("key", 7, now));
+        assertFalse(limiter.isLimited("key", 8, now));
+        limiter.recordFailure("key", now);
+        assertTrue(limiter.isLimited("key", 8, now));
+
+        // two windows later, the failures have expired
+        assertFalse(limiter.isLimited("key", 1, 12 * WINDOW + WINDOW / 4));
+    }
+
+    @Test
+    public void testWindowRotation() {
+        val limiter = new RateLimiter(WINDOW, 1, 1);
+        for (var i = 0; i < 10; i++) {
+            limiter.recordFailure("key", 10 * WINDOW);
+        }
+        // window 12 reuses the sketch of window 10, which must be cleared first
+        limiter.recordFailure("key", 12 * WINDOW);
+        assertTrue(limiter.isLimited("key", 1, 12 * WINDOW));
+        assertFalse(limiter.isLimited("key", 2, 12 * WINDOW));
+    }
+
+    @Test
+    public void testTooManyRequests() throws Exception {
+        val limiter = new RateLimiter(60_000, 2, 100);
+        val server = Undertow.builder().addHttpListener(0, "localhost")
+                .setHandler(limiter.wrap(exchange -> exchange.setStatusCode(401))).build();
+        server.start();
+        try {
+            val port = ((InetSocketAddress) server.getListenerInfo().get(0).getAddress()).getPort();
+            val client = HttpClient.newHttpClient();
+            val uri = URI.create("http://localhost:" + port + "/api");
+            val challenge = HttpRequest.newBuilder(uri).build();
+            val credentials = HttpRequest.newBuilder(uri).header(Headers.AUTHORIZATION_STRING, "Basic "
+                    + Base64.getEncoder().encodeToString("jle:bad".getBytes(StandardCharsets.UTF_8))).build();
+
+            // the challenges without credentials are not failed attempts
+            for (var i = 0; i < 5; i++) {
+                assertEquals(401, client.send(challenge, HttpResponse.BodyHandlers.discarding()).statusCode());
+            }
+            assertEquals(401, client.send(credentials, HttpResponse.BodyHandlers.discarding()).statusCode());
+            assertEquals(401, client.send(credentials, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+            val response = client.send(credentials, HttpResponse.BodyHandlers.discarding());
+            assertEquals(429, response.statusCode());
+            assertEquals("60", response.headers().firstValue(Headers.RETRY_AFTER_STRING).orElse(null));
+            assertEquals(429, client.send(challenge, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests {@link RouteDispatcher}.
+ *
+ * @since 6.0.0
+ */
+public final class RouteDispatcherTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    private HttpHandler handler(final String name) {
+        return exchange -> calls.add(name + " " + exchange.getResolvedPath() + " " + exchange.getRelativePath());
+    }
+
+    private final RouteDispatcher dispatcher = new RouteDispatcher(handler("default"));
+
+    private String dispatch(final String path) throws Exception {
+        val exchange = new HttpServerExchange(null);
+        exchange.setRequestPath(path);
+        exchange.setRelativePath(path);
+        calls.clear();
+        dispatcher.handleRequest(exchange);
+        assertEquals(1, calls.size());
+        return calls.get(0);
+    }
+
+    @Test
+    public void testExactPath() throws Exception {
+        dispatcher.addExactPath("/", handler("root")).addExactPath("/index.html", handler("index"))
+                .addExactPath("/form/index.html", handler("form")).addExactPath("/form/index.html.json", handler("json"));
+        assertEquals("root  /", dispatch("/"));
+        assertEquals("index  /index.html", dispatch("/index.html"));
+        assertEquals("form  /form/index.html", dispatch("/form/index.html"));
+        assertEquals("json  /form/index.html.json", dispatch("/form/index.html.json"));
+        assertEquals("default  /form/index", dispatch("/form/index"));
+        assertEquals("default  /form/index.html.js", dispatch("/form/index.html.js"));
+        assertEquals("default  /unknown", dispatch("/unknown"));
+    }
+
+    @Test
+    public void testPrefixOnSegmentBoundary() throws Exception {
+        dispatcher.addPrefixPath("/assets/js/", handler("assets"));
+        assertEquals("assets /assets/js /app.js", dispatch("/assets/js/app.js"));
+        assertEquals("assets /assets/js ", dispatch("/assets/js"));
+        assertEquals("default  /assets/jsx/app.js", dispatch("/assets/jsx/app.js"));
+        assertEquals("default  /assets", dispatch("/assets"));
+    }
+
+    @Test
+    public void testLongestPrefixWins() throws Exception {
+        dispatcher.addPrefixPath("/", handler("root")).addPrefixPath("/api", handler("api"))
+                .addPrefixPath("/api/v2", handler("v2"));
+        assertEquals("v2 /api/v2 /users", dispatch("/api/v2/users"));
+        assertEquals("api /api /v1/users", dispatch("/api/v1/users"));
+        assertEquals("api /api /v2x", dispatch("/api/v2x"));
+        assertEquals("root  /other", dispatch("/other"));
+    }
+
+    @Test
+    public void testExactPathBeforePrefix() throws Exception {
+        dispatcher.addPrefixPath("/api", handler("prefix")).addExactPath("/api/users", handler("exact"));
+        assertEquals("exact  /api/users", dispatch("/api/users"));
+        assertEquals("prefix /api /users/1", dispatch("/api/users/1"));
+    }
+}
@@ -0,0 +1,110 @@
+package org.pac4j.demo.undertow;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.exception.TechnicalException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link RouteTable}.
+ *
+ * @since 6.0.0
+ */
+public final class RouteTableTest {
+
+    @TempDir
+    Path directory;
+
+    private String write(final String... lines) throws IOException {
+        val file = directory.resolve("routes.conf");
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return file.toString();
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        val table = RouteTable.load(write("# comment", "", "  /index.html   index   clients=AnonymousClient  ",
+                "/dba/index.html protectedIndex clients=DirectBasicAuthClient,ParameterClient authorizers=admin "
+                        + "matchers=none offload=true ratelimit=true custom=a=b",
+                "/protected/index.html protectedIndex"));
+        val routes = table.getRoutes();
+        assertEquals(3, routes.size());
+
+        val index = routes.get(0);
+        assertEquals("/index.html", index.getPath());
+        assertEquals("index", index.getHandler());
+        assertEquals("AnonymousClient", index.getClients());
+        assertNull(index.getAuthorizers());
+        assertFalse(index.isOffloaded());
+        assertFalse(index.isRateLimited());
+
+        val dba = routes.get(1);
+        assertEquals("DirectBasicAuthClient,ParameterClient", dba.getClients());
+        assertEquals("admin", dba.getAuthorizers());
+        assertEquals("none", dba.getMatchers());
+        assertTrue(dba.isOffloaded());
+        assertTrue(dba.isRateLimited());
+        assertEquals("a=b", dba.getOption("custom"));
+
+        assertNull(routes.get(2).getClients());
+        assertEquals(Set.of("AnonymousClient", "DirectBasicAuthClient", "ParameterClient"), table.getClientNames());
+    }
+
+    @Test
+    public void testLoadFromClasspath() {
+        val table = RouteTable.load(RouteTable.DEFAULT_LOCATION);
+        assertFalse(table.getRoutes().isEmpty());
+        assertTrue(table.getClientNames().contains("FormClient"));
+    }
+
+    @Test
+    public void testMissingRoutes() {
+        val e = assertThrows(TechnicalException.class, () -> RouteTable.load("missing-routes.conf"));
+        assertEquals("Cannot find routes: missing-routes.conf", e.getMessage());
+    }
+
+    @Test
+    public void testRouteWithoutHandler() throws IOException {
+        val location = write("# comment", "/index.html");
+        val e = assertThrows(TechnicalException.class, () -> RouteTable.load(location));
+        assertEquals("Invalid route at line 2 of " + location + ": /index.html", e.getMessage());
+    }
+
+    @Test
+    public void testInvalidOption() throws IOException {
+        val location = write("/index.html index clients");
+        val e = assertThrows(TechnicalException.class, () -> RouteTable.load(location));
+        assertEquals("Invalid option at line 1 of " + location + ": clients", e.getMessage());
+
+        val emptyName = write("/index.html index =AnonymousClient");
+        assertThrows(TechnicalException.class, () -> RouteTable.load(emptyName));
+    }
+
+    @Test
+    public void testUnknownHandler() throws IOException {
+        val table = RouteTable.load(write("/index.html unknown clients=AnonymousClient"));
+        val offloader = new Offloader(1, 1);
+        try {
+            val e = assertThrows(TechnicalException.class, () -> table.register(new RouteDispatcher(), new Config(),
+                    Map.of(), offloader, new RateLimiter(60_000, 1, 1)));
+            assertEquals("Unknown handler: unknown for route: /index.html", e.getMessage());
+        } finally {
+            offloader.shutdown();
+        }
+    }
+}
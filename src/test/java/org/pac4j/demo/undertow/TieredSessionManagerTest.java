@@ -0,0 +1,212 @@
+package org.pac4j.demo.undertow;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.session.SessionConfig;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TieredSessionManager}.
+ *
+ * @since 6.0.0
+ */
+public final class TieredSessionManagerTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    private final CountingTier local = new CountingTier();
+
+    private final CountingTier remote = new CountingTier();
+
+    private final SimpleSessionConfig config = new SimpleSessionConfig();
+
+    private final TieredSessionManager manager = new TieredSessionManager("test", local, remote, now::get);
+
+    private String createSession(final String name, final Object value) {
+        val exchange = new HttpServerExchange(null);
+        val session = manager.createSession(exchange, config);
+        session.setAttribute(name, value);
+        session.requestDone(exchange);
+        return session.getId();
+    }
+
+    @Test
+    public void testCreateLoadInvalidate() {
+        val id = createSession("key", "value");
+        assertTrue(local.ids().contains(id));
+        assertTrue(remote.ids().contains(id));
+
+        val exchange = new HttpServerExchange(null);
+        val session = manager.getSession(exchange, config);
+        assertEquals(id, session.getId());
+        assertEquals("value", session.getAttribute("key"));
+        session.invalidate(exchange);
+        assertNull(config.id);
+        assertFalse(local.ids().contains(id));
+        assertFalse(remote.ids().contains(id));
+
+        config.id = id;
+        assertNull(manager.getSession(new HttpServerExchange(null), config));
+    }
+
+    @Test
+    public void testConcurrentRequestsShareTheSession() {
+        createSession("key", "value");
+        val first = new HttpServerExchange(null);
+        val second = new HttpServerExchange(null);
+        val firstSession = manager.getSession(first, config);
+        val secondSession = manager.getSession(second, config);
+        assertSame(firstSession, secondSession);
+        firstSession.setAttribute("first", 1);
+        secondSession.setAttribute("second", 2);
+        firstSession.requestDone(first);
+        secondSession.requestDone(second);
+
+        val exchange = new HttpServerExchange(null);
+        val session = manager.getSession(exchange, config);
+        assertEquals(1, session.getAttribute("first"));
+        assertEquals(2, session.getAttribute("second"));
+        session.requestDone(exchange);
+    }
+
+    @Test
+    public void testAttributesDecodedOnFirstAccess() {
+        createSession("key", "value");
+        local.loads.set(0);
+        local.stores.set(0);
+
+        // a request which does not use the attributes: no full load and no new encoding
+        val exchange = new HttpServerExchange(null);
+        val session = manager.getSession(exchange, config);
+        assertNotNull(session);
+        now.addAndGet(120_000);
+        session.requestDone(exchange);
+        assertEquals(0, local.loads.get());
+        assertEquals(0, local.stores.get());
+        assertEquals(1, local.updates.get());
+
+        val reading = new HttpServerExchange(null);
+        assertEquals("value", manager.getSession(reading, config).getAttribute("key"));
+        assertEquals(1, local.loads.get());
+    }
+
+    @Test
+    public void testPromotionFromRemoteTier() {
+        val id = createSession("key", "value");
+        local.remove(id);
+
+        val exchange = new HttpServerExchange(null);
+        val session = manager.getSession(exchange, config);
+        assertNotNull(session);
+        assertTrue(local.ids().contains(id));
+        assertEquals("value", session.getAttribute("key"));
+    }
+
+    @Test
+    public void testEviction() {
+        val tier = new OffHeapSessionTier(2, 1024 * 1024);
+        val evicting = new TieredSessionManager("test", tier, null, now::get);
+        for (var i = 0; i < 3; i++) {
+            val exchange = new HttpServerExchange(null);
+            val session = evicting.createSession(exchange, config);
+            session.setAttribute("index", i);
+            session.requestDone(exchange);
+        }
+        assertEquals(2, tier.size());
+    }
+
+    @Test
+    public void testOversizedSessionRejected() {
+        val tier = new OffHeapSessionTier(10, 16);
+        tier.store("id", new byte[32]);
+        assertEquals(0, tier.size());
+        assertEquals(0, tier.getBytes());
+    }
+
+    @Test
+    public void testExpiry() {
+        val id = createSession("key", "value");
+        now.addAndGet(30 * 60 * 1000L + 1);
+        assertNull(manager.getSession(new HttpServerExchange(null), config));
+        assertFalse(local.ids().contains(id));
+        assertFalse(remote.ids().contains(id));
+    }
+
+    @Test
+    public void testSweep() {
+        val expired = createSession("key", "value");
+        now.addAndGet(20 * 60 * 1000L);
+        val active = createSession("key", "value");
+        now.addAndGet(20 * 60 * 1000L);
+        assertEquals(1, manager.sweep());
+        assertFalse(local.ids().contains(expired));
+        assertTrue(local.ids().contains(active));
+    }
+
+    private static final class CountingTier extends InMemorySessionTier {
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private final AtomicInteger stores = new AtomicInteger();
+
+        private final AtomicInteger updates = new AtomicInteger();
+
+        @Override
+        public byte[] load(final String id) {
+            loads.incrementAndGet();
+            return super.load(id);
+        }
+
+        @Override
+        public void store(final String id, final byte[] data) {
+            stores.incrementAndGet();
+            super.store(id, data);
+        }
+
+        @Override
+        public void update(final String id, final int offset, final byte[] data) {
+            updates.incrementAndGet();
+            super.update(id, offset, data);
+        }
+    }
+
+    private static final class SimpleSessionConfig implements SessionConfig {
+
+        private String id;
+
+        @Override
+        public void setSessionId(final HttpServerExchange exchange, final String sessionId) {
+            this.id = sessionId;
+        }
+
+        @Override
+        public void clearSession(final HttpServerExchange exchange, final String sessionId) {
+            this.id = null;
+        }
+
+        @Override
+        public String findSessionId(final HttpServerExchange exchange) {
+            return id;
+        }
+
+        @Override
+        public SessionCookieSource sessionCookieSource(final HttpServerExchange exchange) {
+            return SessionCookieSource.COOKIE;
+        }
+
+        @Override
+        public String rewriteUrl(final String originalUrl, final String sessionId) {
+            return originalUrl;
+        }
+    }
+}